@@ -45,8 +45,9 @@ VALUES (
 ) ON CONFLICT (username) DO NOTHING;
 
 -- Example: Create audit log table
+-- id phải khớp entity AuditLog (Long, IDENTITY): timeline phân trang theo (timestamp, id)
 CREATE TABLE IF NOT EXISTS audit_log (
-    id UUID PRIMARY KEY DEFAULT uuid_generate_v4(),
+    id BIGSERIAL PRIMARY KEY,
     action VARCHAR(100) NOT NULL,
     entity_type VARCHAR(100),
     entity_id VARCHAR(255),
@@ -57,6 +58,8 @@ CREATE TABLE IF NOT EXISTS audit_log (
 
 CREATE INDEX IF NOT EXISTS idx_audit_log_timestamp ON audit_log(timestamp DESC);
 CREATE INDEX IF NOT EXISTS idx_audit_log_user_id ON audit_log(user_id);
+-- Timeline của một entity (GET /api/tickets/{id}/timeline)
+CREATE INDEX IF NOT EXISTS idx_audit_log_entity ON audit_log(entity_type, entity_id, timestamp);
 
 -- Add any other initialization SQL here
 
@@ -2,7 +2,7 @@ import { Component, OnInit } from '@angular/core';
 import { CommonModule } from '@angular/common';
 import { FormsModule } from '@angular/forms';
 import { AdminService, User } from '../services/admin.service';
-import { TicketService, TicketDTO, TicketStatus } from '../services/ticket.service';
+import { TicketService, TicketStats, TicketStatus } from '../services/ticket.service';
 import { KeycloakService } from '../services/keycloak.service';
 
 @Component({
@@ -14,7 +14,6 @@ import { KeycloakService } from '../services/keycloak.service';
 })
 export class AdminComponent implements OnInit {
   users: User[] = [];
-  tickets: TicketDTO[] = [];
   loading = false;
   error: string | null = null;
 
@@ -70,10 +69,9 @@ export class AdminComponent implements OnInit {
   }
 
   private loadTickets() {
-    this.ticketService.getAllTickets().subscribe({
-      next: (tickets) => {
-        this.tickets = tickets;
-        this.updateTicketStats();
+    this.ticketService.getStats().subscribe({
+      next: (stats) => {
+        this.updateTicketStats(stats);
         this.loading = false;
       },
       error: (err) => {
@@ -130,11 +128,12 @@ export class AdminComponent implements OnInit {
     this.activeCount = this.users.filter(u => u.enabled).length;
   }
 
-  private updateTicketStats() {
-    this.totalTickets = this.tickets.length;
-    this.pendingTickets = this.tickets.filter(t => t.status === TicketStatus.SUBMITTED).length;
-    this.approvedTickets = this.tickets.filter(t => t.status === TicketStatus.APPROVED).length;
-    this.rejectedTickets = this.tickets.filter(t => t.status === TicketStatus.REJECTED).length;
+  private updateTicketStats(stats: TicketStats) {
+    const count = (status: TicketStatus) => stats.byStatus[status]?.count ?? 0;
+    this.totalTickets = Object.values(stats.byStatus).reduce((total, totals) => total + totals.count, 0);
+    this.pendingTickets = count(TicketStatus.SUBMITTED);
+    this.approvedTickets = count(TicketStatus.APPROVED);
+    this.rejectedTickets = count(TicketStatus.REJECTED);
   }
 
   downloadReport(type: string, format: string) {
@@ -1,6 +1,7 @@
 import { Injectable } from '@angular/core';
-import { HttpClient } from '@angular/common/http';
+import { HttpClient, HttpParams, HttpResponse } from '@angular/common/http';
 import { Observable } from 'rxjs';
+import { map } from 'rxjs/operators';
 
 export enum TicketStatus {
     DRAFT = 'DRAFT',
@@ -29,24 +30,62 @@ export interface TicketDTO {
     updatedAt: string;
 }
 
+export interface TicketPage {
+    tickets: TicketDTO[];
+    // null khi đã tới trang cuối
+    nextCursor: string | null;
+}
+
+export interface StatusTotals {
+    count: number;
+    amount: number;
+}
+
+export interface TicketStats {
+    maker?: string;
+    byStatus: { [status: string]: StatusTotals };
+}
+
 @Injectable({
     providedIn: 'root'
 })
 export class TicketService {
     private apiUrl = '/api/tickets';
+    // Backend trả về từng trang (keyset), cursor trang tiếp theo nằm trong header này
+    private nextCursorHeader = 'X-Next-Cursor';
 
     constructor(private http: HttpClient) { }
 
-    getAllTickets(): Observable<TicketDTO[]> {
-        return this.http.get<TicketDTO[]>(this.apiUrl);
+    /**
+     * Đọc một trang, trang tiếp theo được đọc khi người dùng cần (truyền lại nextCursor)
+     * @param status lọc theo trạng thái (maker vẫn chỉ thấy ticket của mình)
+     */
+    getTicketPage(status?: TicketStatus, cursor?: string | null): Observable<TicketPage> {
+        let params = new HttpParams();
+        if (status) {
+            params = params.set('status', status);
+        }
+        if (cursor) {
+            params = params.set('cursor', cursor);
+        }
+        const url = status ? `${this.apiUrl}/filter` : this.apiUrl;
+        return this.http.get<TicketDTO[]>(url, { params, observe: 'response' }).pipe(
+            map((response: HttpResponse<TicketDTO[]>) => ({
+                tickets: response.body ?? [],
+                nextCursor: response.headers.get(this.nextCursorHeader)
+            }))
+        );
     }
 
-    getTicketById(id: number): Observable<TicketDTO> {
-        return this.http.get<TicketDTO>(`${this.apiUrl}/${id}`);
+    /**
+     * Counters theo trạng thái cho dashboard, không cần đọc danh sách ticket
+     */
+    getStats(): Observable<TicketStats> {
+        return this.http.get<TicketStats>(`${this.apiUrl}/stats`);
     }
 
-    getTicketsByStatus(status: TicketStatus): Observable<TicketDTO[]> {
-        return this.http.get<TicketDTO[]>(`${this.apiUrl}/status/${status}`);
+    getTicketById(id: number): Observable<TicketDTO> {
+        return this.http.get<TicketDTO>(`${this.apiUrl}/${id}`);
     }
 
     createTicket(request: TicketRequest): Observable<TicketDTO> {
@@ -3,6 +3,7 @@ import { CommonModule } from '@angular/common';
 import { RouterModule, Router } from '@angular/router';
 import { TicketService, TicketDTO, TicketStatus } from '../services/ticket.service';
 import { KeycloakService } from '../services/keycloak.service';
+import { Subscription } from 'rxjs';
 
 @Component({
   selector: 'app-ticket-list',
@@ -66,7 +67,7 @@ import { KeycloakService } from '../services/keycloak.service';
                 </tr>
               </thead>
               <tbody>
-                <tr *ngFor="let ticket of filteredTickets" class="align-middle">
+                <tr *ngFor="let ticket of tickets" class="align-middle">
                   <td class="ps-4"><span class="fw-bold text-primary">#{{ ticket.id }}</span></td>
                   <td>
                     <div class="fw-medium text-truncate" style="max-width: 250px;">{{ ticket.title }}</div>
@@ -86,7 +87,7 @@ import { KeycloakService } from '../services/keycloak.service';
                     <a [routerLink]="[ticket.id]" class="btn btn-sm btn-light border">Chi tiết</a>
                   </td>
                 </tr>
-                <tr *ngIf="filteredTickets.length === 0">
+                <tr *ngIf="tickets.length === 0 && !loading">
                   <td colspan="7" class="text-center py-5 text-muted">
                     <div class="mb-2" style="font-size: 2rem;">📂</div>
                     Không tìm thấy dữ liệu ticket nào
@@ -95,6 +96,11 @@ import { KeycloakService } from '../services/keycloak.service';
               </tbody>
             </table>
           </div>
+          <div class="text-center py-3" *ngIf="nextCursor">
+            <button class="btn btn-outline-secondary" [disabled]="loading" (click)="loadMore()">
+              {{ loading ? 'Đang tải...' : 'Tải thêm' }}
+            </button>
+          </div>
         </div>
       </div>
     </div>
@@ -133,8 +139,11 @@ import { KeycloakService } from '../services/keycloak.service';
 })
 export class TicketListComponent implements OnInit {
   tickets: TicketDTO[] = [];
-  filteredTickets: TicketDTO[] = [];
   selectedStatus: string = 'ALL';
+  // Cursor của trang tiếp theo, null khi đã tới trang cuối
+  nextCursor: string | null = null;
+  loading = false;
+  private pageRequest?: Subscription;
 
   constructor(
     private ticketService: TicketService,
@@ -146,20 +155,42 @@ export class TicketListComponent implements OnInit {
     this.loadTickets();
   }
 
+  /**
+   * Đọc lại trang đầu của trạng thái đang chọn, các trang sau chỉ đọc khi bấm "Tải thêm"
+   */
   loadTickets(): void {
-    this.ticketService.getAllTickets().subscribe(data => {
-      this.tickets = data;
-      this.filterStatus(this.selectedStatus);
-    });
+    // Bỏ response của trạng thái cũ nếu người dùng chuyển tab khi trang chưa về
+    this.pageRequest?.unsubscribe();
+    this.tickets = [];
+    this.nextCursor = null;
+    this.loadPage();
+  }
+
+  loadMore(): void {
+    if (this.nextCursor && !this.loading) {
+      this.loadPage(this.nextCursor);
+    }
   }
 
   filterStatus(status: string): void {
     this.selectedStatus = status;
-    if (status === 'ALL') {
-      this.filteredTickets = this.tickets;
-    } else {
-      this.filteredTickets = this.tickets.filter(t => t.status === status);
-    }
+    this.loadTickets();
+  }
+
+  private loadPage(cursor?: string): void {
+    const status = this.selectedStatus === 'ALL' ? undefined : this.selectedStatus as TicketStatus;
+    this.loading = true;
+    this.pageRequest = this.ticketService.getTicketPage(status, cursor).subscribe({
+      next: page => {
+        this.tickets = this.tickets.concat(page.tickets);
+        this.nextCursor = page.nextCursor;
+        this.loading = false;
+      },
+      error: err => {
+        console.error('Failed to load tickets:', err);
+        this.loading = false;
+      }
+    });
   }
 
   isAdminView(): boolean {
@@ -0,0 +1,11 @@
+package com.example.keycloak.cache;
+
+/**
+ * Gửi invalidation message cho L1 cache trên các node khác
+ */
+public interface CacheInvalidationPublisher {
+
+    void publishEvict(String cacheName, String key);
+
+    void publishClear(String cacheName);
+}
@@ -0,0 +1,180 @@
+package com.example.keycloak.cache;
+
+import com.example.keycloak.config.TwoLevelCacheProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Cache Load Coordinator
+ * Chống cache stampede khi một key hot hết hạn
+ *
+ * - Single-flight trong node: chỉ một thread load mỗi key, các thread khác chờ kết quả
+ * - Lease giữa các node: SET lockKey nodeId NX PX leaseTime, node thua chờ value của node thắng
+ * - Probabilistic early refresh (XFetch): refresh ở background trước khi entry hết hạn,
+ *   xác suất tăng dần khi gần tới expiry nên chủ yếu áp dụng cho key được đọc nhiều
+ */
+@Slf4j
+public class CacheLoadCoordinator {
+
+    private static final String LEASE_PREFIX = "lease:";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final TwoLevelCacheProperties.Stampede properties;
+    private final String nodeId;
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Set<String> pendingRefreshes = ConcurrentHashMap.newKeySet();
+    private final ExecutorService refreshExecutor;
+
+    public CacheLoadCoordinator(StringRedisTemplate stringRedisTemplate,
+                                TwoLevelCacheProperties.Stampede properties,
+                                String nodeId) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.properties = properties;
+        this.nodeId = nodeId;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.refreshExecutor = Executors.newFixedThreadPool(properties.getRefreshThreads(), r -> {
+            Thread thread = new Thread(r, "cache-refresh-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public TwoLevelCacheProperties.Stampede getProperties() {
+        return properties;
+    }
+
+    /**
+     * Single-flight: chỉ thread đầu tiên chạy action, các thread cùng key chờ kết quả
+     * @param flightKey key định danh (cache name + key)
+     * @param action the load action
+     * @return value do thread đầu tiên load
+     */
+    public Object singleFlight(String flightKey, Supplier<Object> action) {
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(flightKey, flight);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        try {
+            Object value = action.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, flight);
+        }
+    }
+
+    /**
+     * Lấy lease giữa các node cho một cache key
+     * @param redisKey Redis key của cache entry
+     * @return true nếu node này được quyền load
+     */
+    public boolean tryAcquireLease(String redisKey) {
+        try {
+            return Boolean.TRUE.equals(stringRedisTemplate.opsForValue()
+                    .setIfAbsent(LEASE_PREFIX + redisKey, nodeId, properties.getLeaseTime()));
+        } catch (Exception e) {
+            // Redis lỗi: vẫn cho phép load để không chặn request (single-flight trong node vẫn áp dụng)
+            log.error("Error acquiring cache lease: key={}", redisKey, e);
+            return true;
+        }
+    }
+
+    /**
+     * Trả lease nếu node này vẫn đang giữ
+     * @param redisKey Redis key của cache entry
+     */
+    public void releaseLease(String redisKey) {
+        String leaseKey = LEASE_PREFIX + redisKey;
+        try {
+            if (nodeId.equals(stringRedisTemplate.opsForValue().get(leaseKey))) {
+                stringRedisTemplate.delete(leaseKey);
+            }
+        } catch (Exception e) {
+            // Lease sẽ tự hết hạn sau leaseTime
+            log.error("Error releasing cache lease: key={}", redisKey, e);
+        }
+    }
+
+    /**
+     * @param redisKey Redis key của cache entry
+     * @return thời gian sống còn lại (ms), hoặc -1 nếu không xác định
+     */
+    public long remainingTtlMillis(String redisKey) {
+        try {
+            Long ttl = stringRedisTemplate.getExpire(redisKey, TimeUnit.MILLISECONDS);
+            return ttl != null && ttl > 0 ? ttl : -1;
+        } catch (Exception e) {
+            log.error("Error getting cache entry TTL: key={}", redisKey, e);
+            return -1;
+        }
+    }
+
+    /**
+     * XFetch: refresh khi now - delta * beta * ln(rand) >= expiry
+     * @param expiresAtMillis thời điểm entry hết hạn ở L2
+     * @param loadTimeMillis thời gian load ước lượng (delta)
+     * @return true nếu nên refresh sớm
+     */
+    public boolean shouldRefreshEarly(long expiresAtMillis, long loadTimeMillis) {
+        double beta = properties.getEarlyRefreshBeta();
+        if (beta <= 0 || expiresAtMillis <= 0) {
+            return false;
+        }
+        double random = ThreadLocalRandom.current().nextDouble();
+        if (random == 0) {
+            return false;
+        }
+        double gap = -loadTimeMillis * beta * Math.log(random);
+        return System.currentTimeMillis() + gap >= expiresAtMillis;
+    }
+
+    /**
+     * Chạy refresh ở background, bỏ qua nếu key đang được load
+     * @param flightKey key định danh (cache name + key)
+     * @param refresh the refresh action
+     */
+    public void refreshAsync(String flightKey, Supplier<Object> refresh) {
+        if (inFlight.containsKey(flightKey) || !pendingRefreshes.add(flightKey)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    singleFlight(flightKey, refresh);
+                } catch (Exception e) {
+                    log.error("Error refreshing cache entry early: key={}", flightKey, e);
+                } finally {
+                    pendingRefreshes.remove(flightKey);
+                }
+            });
+        } catch (Exception e) {
+            pendingRefreshes.remove(flightKey);
+            log.warn("Cache early refresh rejected: key={}", flightKey);
+        }
+    }
+
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.keycloak.cache;
+
+/**
+ * Loader dùng cho early refresh (XFetch) của một cache
+ *
+ * Refresh chạy trên thread cache-refresh sau khi request gốc đã trả về, nên không thể gọi lại
+ * valueLoader của @Cacheable (bỏ qua transaction advice, không có SecurityContext/request scope).
+ * Cache chỉ được refresh sớm khi có một bean loader cho cache name đó; loader được gọi qua
+ * Spring proxy nên @Transactional vẫn có hiệu lực, nhưng không được dựa vào user hiện tại.
+ */
+public interface CacheRefreshLoader {
+
+    /**
+     * @return cache name mà loader này phục vụ
+     */
+    String getCacheName();
+
+    /**
+     * @param key cache key (giống key của @Cacheable)
+     * @return value mới, null nếu không còn tồn tại
+     */
+    Object load(Object key) throws Exception;
+}
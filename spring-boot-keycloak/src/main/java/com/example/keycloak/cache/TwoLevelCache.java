@@ -0,0 +1,309 @@
+package com.example.keycloak.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.cache.RedisCache;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Two-Level Cache
+ * L1: Caffeine (in-memory trên node hiện tại)
+ * L2: Redis (dùng chung giữa các node)
+ *
+ * - Đọc: L1 trước, miss thì đọc L2 và nạp lại vào L1
+ * - Ghi/xóa: ghi L2, cập nhật L1 local và broadcast để các node khác xóa bản L1 cũ
+ * - Load (@Cacheable(sync = true)): chống stampede qua {@link CacheLoadCoordinator},
+ *   value vừa load chỉ cập nhật L1 local (không broadcast: các node khác chưa có bản nào mới hơn để xóa)
+ * - Early refresh chỉ áp dụng khi có {@link CacheRefreshLoader} cho cache này
+ */
+public class TwoLevelCache implements Cache {
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<String, LocalEntry> l1;
+    private final Cache l2;
+    private final CacheInvalidationPublisher publisher;
+    private final CacheLoadCoordinator coordinator;
+    // Trả về null nếu cache này không có loader cho early refresh
+    private final Supplier<CacheRefreshLoader> refreshLoader;
+
+    // Bản cũ dùng khi node thua lease chờ quá lâu
+    private final com.github.benmanes.caffeine.cache.Cache<String, Object> stale;
+    // Thời gian load trung bình (ms) của cache này, dùng cho early refresh
+    private final AtomicLong averageLoadMillis;
+    private final long l2TtlMillis;
+
+    public TwoLevelCache(String name,
+                         com.github.benmanes.caffeine.cache.Cache<String, LocalEntry> l1,
+                         Cache l2,
+                         CacheInvalidationPublisher publisher,
+                         CacheLoadCoordinator coordinator,
+                         Supplier<CacheRefreshLoader> refreshLoader,
+                         long staleMaximumSize) {
+        this.name = name;
+        this.l1 = l1;
+        this.l2 = l2;
+        this.publisher = publisher;
+        this.coordinator = coordinator;
+        this.refreshLoader = refreshLoader;
+        this.stale = Caffeine.newBuilder()
+                .maximumSize(staleMaximumSize)
+                .expireAfterWrite(coordinator.getProperties().getStaleTtl())
+                .build();
+        this.averageLoadMillis = new AtomicLong(coordinator.getProperties().getInitialLoadTime().toMillis());
+        Duration l2Ttl = l2 instanceof RedisCache ? ((RedisCache) l2).getCacheConfiguration().getTtl() : Duration.ZERO;
+        this.l2TtlMillis = l2Ttl.toMillis();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return l2.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String localKey = localKey(key);
+        LocalEntry local = l1.getIfPresent(localKey);
+        if (local != null) {
+            return new SimpleValueWrapper(local.value);
+        }
+
+        ValueWrapper remote = l2.get(key);
+        if (remote != null && remote.get() != null) {
+            l1.put(localKey, new LocalEntry(remote.get(), 0));
+        }
+        return remote;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException(
+                    "Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String localKey = localKey(key);
+        LocalEntry local = l1.getIfPresent(localKey);
+        if (local != null) {
+            refreshEarlyIfNeeded(key, local);
+            return (T) local.value;
+        }
+
+        if (!coordinator.getProperties().isEnabled()) {
+            T value = l2.get(key, valueLoader);
+            if (value != null) {
+                l1.put(localKey, new LocalEntry(value, 0));
+            }
+            return value;
+        }
+        return (T) coordinator.singleFlight(redisKey(localKey), () -> loadThroughL2(key, valueLoader));
+    }
+
+    private Object loadThroughL2(Object key, Callable<?> valueLoader) {
+        String localKey = localKey(key);
+        String redisKey = redisKey(localKey);
+
+        ValueWrapper remote = l2.get(key);
+        if (remote != null && remote.get() != null) {
+            LocalEntry entry = cacheLocally(localKey, remote.get(), coordinator.remainingTtlMillis(redisKey));
+            refreshEarlyIfNeeded(key, entry);
+            return entry.value;
+        }
+
+        if (coordinator.tryAcquireLease(redisKey)) {
+            try {
+                return load(key, valueLoader);
+            } finally {
+                coordinator.releaseLease(redisKey);
+            }
+        }
+
+        // Node khác đang load: chờ value của node thắng
+        long deadline = System.nanoTime() + coordinator.getProperties().getWaitTime().toNanos();
+        long pollMillis = coordinator.getProperties().getPollInterval().toMillis();
+        while (System.nanoTime() < deadline) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(pollMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            remote = l2.get(key);
+            if (remote != null && remote.get() != null) {
+                return cacheLocally(localKey, remote.get(), coordinator.remainingTtlMillis(redisKey)).value;
+            }
+        }
+
+        // Quá thời gian chờ: trả bản cũ nếu có, nếu không thì tự load
+        Object staleValue = stale.getIfPresent(localKey);
+        if (staleValue != null) {
+            return staleValue;
+        }
+        return load(key, valueLoader);
+    }
+
+    /**
+     * Gọi loader, ghi L2 + L1 local và đo thời gian load
+     */
+    private Object load(Object key, Callable<?> valueLoader) {
+        long start = System.nanoTime();
+        Object value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        long loadMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        // Trung bình trượt: 80% giá trị cũ, 20% lần đo mới
+        averageLoadMillis.updateAndGet(avg -> (avg * 4 + loadMillis) / 5);
+
+        if (value != null) {
+            l2.put(key, value);
+            cacheLocally(localKey(key), value, l2TtlMillis > 0 ? l2TtlMillis : -1);
+        }
+        return value;
+    }
+
+    private LocalEntry cacheLocally(String localKey, Object value, long remainingTtlMillis) {
+        long expiresAt = remainingTtlMillis > 0 ? System.currentTimeMillis() + remainingTtlMillis : 0;
+        LocalEntry entry = new LocalEntry(value, expiresAt);
+        l1.put(localKey, entry);
+        stale.put(localKey, value);
+        return entry;
+    }
+
+    private void refreshEarlyIfNeeded(Object key, LocalEntry entry) {
+        if (!coordinator.getProperties().isEnabled()
+                || !coordinator.shouldRefreshEarly(entry.expiresAtMillis, averageLoadMillis.get())) {
+            return;
+        }
+        CacheRefreshLoader loader = refreshLoader.get();
+        if (loader == null) {
+            return;
+        }
+        Callable<Object> valueLoader = () -> loader.load(key);
+        String redisKey = redisKey(localKey(key));
+        coordinator.refreshAsync(redisKey, () -> {
+            if (!coordinator.tryAcquireLease(redisKey)) {
+                return entry.value;
+            }
+            try {
+                return load(key, valueLoader);
+            } finally {
+                coordinator.releaseLease(redisKey);
+            }
+        });
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        l2.put(key, value);
+        String localKey = localKey(key);
+        if (value != null) {
+            l1.put(localKey, new LocalEntry(value, 0));
+        } else {
+            l1.invalidate(localKey);
+        }
+        publisher.publishEvict(name, localKey);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = l2.putIfAbsent(key, value);
+        String localKey = localKey(key);
+        Object current = existing != null ? existing.get() : value;
+        if (current != null) {
+            l1.put(localKey, new LocalEntry(current, 0));
+        }
+        if (existing == null) {
+            publisher.publishEvict(name, localKey);
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        l2.evict(key);
+        String localKey = localKey(key);
+        l1.invalidate(localKey);
+        stale.invalidate(localKey);
+        publisher.publishEvict(name, localKey);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean evicted = l2.evictIfPresent(key);
+        String localKey = localKey(key);
+        l1.invalidate(localKey);
+        stale.invalidate(localKey);
+        publisher.publishEvict(name, localKey);
+        return evicted;
+    }
+
+    @Override
+    public void clear() {
+        l2.clear();
+        l1.invalidateAll();
+        stale.invalidateAll();
+        publisher.publishClear(name);
+    }
+
+    /**
+     * Xóa entry trong L1 khi nhận được invalidation message từ node khác
+     */
+    void evictLocal(String localKey) {
+        l1.invalidate(localKey);
+    }
+
+    /**
+     * Xóa toàn bộ L1 khi nhận được clear message từ node khác
+     */
+    void clearLocal() {
+        l1.invalidateAll();
+    }
+
+    /**
+     * Key dạng String để thống nhất giữa các node (giống cách RedisCache convert key)
+     */
+    static String localKey(Object key) {
+        return String.valueOf(key);
+    }
+
+    /**
+     * Redis key của entry theo CacheKeyPrefix mặc định: cacheName::key
+     */
+    private String redisKey(String localKey) {
+        return name + "::" + localKey;
+    }
+
+    /**
+     * Entry trong L1, kèm thời điểm hết hạn ở L2 (0 nếu không biết) cho early refresh
+     */
+    static final class LocalEntry {
+        private final Object value;
+        private final long expiresAtMillis;
+
+        LocalEntry(Object value, long expiresAtMillis) {
+            this.value = value;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.keycloak.cache;
+
+import com.example.keycloak.config.TwoLevelCacheProperties;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.transaction.AbstractTransactionSupportingCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Two-Level Cache Manager
+ * Bọc RedisCacheManager (L2) với Caffeine L1 trên từng node
+ *
+ * - Size và TTL của L1 cấu hình theo cache name (cache.l1.*)
+ * - Evict/put được broadcast qua Redis pub/sub để các node khác xóa bản L1 cũ
+ * - Load qua @Cacheable(sync = true) được chống stampede bởi {@link CacheLoadCoordinator}
+ * - Early refresh dùng bean {@link CacheRefreshLoader} theo cache name (không có thì không refresh sớm)
+ * - Message có dạng: nodeId|EVICT|cacheName|key hoặc nodeId|CLEAR|cacheName
+ */
+@Slf4j
+public class TwoLevelCacheManager extends AbstractTransactionSupportingCacheManager
+        implements CacheInvalidationPublisher, MessageListener, DisposableBean {
+
+    private static final String SEPARATOR = "|";
+    private static final String OP_EVICT = "EVICT";
+    private static final String OP_CLEAR = "CLEAR";
+
+    private final RedisCacheManager redisCacheManager;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final TwoLevelCacheProperties properties;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final CacheLoadCoordinator loadCoordinator;
+    // Resolve lúc refresh: loader thường phụ thuộc service dùng chính cache manager này
+    private final ObjectProvider<CacheRefreshLoader> refreshLoaders;
+
+    public TwoLevelCacheManager(RedisCacheManager redisCacheManager,
+                                StringRedisTemplate stringRedisTemplate,
+                                TwoLevelCacheProperties properties,
+                                ObjectProvider<CacheRefreshLoader> refreshLoaders) {
+        this.redisCacheManager = redisCacheManager;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.properties = properties;
+        this.refreshLoaders = refreshLoaders;
+        this.loadCoordinator = new CacheLoadCoordinator(stringRedisTemplate, properties.getStampede(), nodeId);
+    }
+
+    @Override
+    protected Collection<? extends Cache> loadCaches() {
+        redisCacheManager.initializeCaches();
+        List<Cache> caches = new ArrayList<>();
+        for (String cacheName : redisCacheManager.getCacheNames()) {
+            caches.add(createTwoLevelCache(cacheName));
+        }
+        return caches;
+    }
+
+    @Override
+    protected Cache getMissingCache(String name) {
+        return createTwoLevelCache(name);
+    }
+
+    private TwoLevelCache createTwoLevelCache(String name) {
+        Cache l2 = redisCacheManager.getCache(name);
+        TwoLevelCacheProperties.Spec spec = properties.specFor(name);
+        com.github.benmanes.caffeine.cache.Cache<String, TwoLevelCache.LocalEntry> l1 = Caffeine.newBuilder()
+                .maximumSize(spec.getMaximumSize())
+                .expireAfterWrite(spec.getTtl())
+                .recordStats()
+                .build();
+        log.info("Two-level cache created: name={}, l1MaxSize={}, l1Ttl={}",
+                name, spec.getMaximumSize(), spec.getTtl());
+        return new TwoLevelCache(name, l1, l2, this, loadCoordinator, () -> refreshLoaderFor(name),
+                spec.getMaximumSize());
+    }
+
+    private CacheRefreshLoader refreshLoaderFor(String cacheName) {
+        return refreshLoaders.orderedStream()
+                .filter(loader -> cacheName.equals(loader.getCacheName()))
+                .findFirst()
+                .orElse(null);
+    }
+
+    @Override
+    public void destroy() {
+        loadCoordinator.shutdown();
+    }
+
+    @Override
+    public void publishEvict(String cacheName, String key) {
+        publish(String.join(SEPARATOR, nodeId, OP_EVICT, cacheName, key));
+    }
+
+    @Override
+    public void publishClear(String cacheName) {
+        publish(String.join(SEPARATOR, nodeId, OP_CLEAR, cacheName));
+    }
+
+    private void publish(String message) {
+        try {
+            stringRedisTemplate.convertAndSend(properties.getInvalidationChannel(), message);
+        } catch (Exception e) {
+            // L1 của node khác sẽ tự hết hạn theo TTL
+            log.error("Error publishing cache invalidation: message={}", message, e);
+        }
+    }
+
+    /**
+     * Nhận invalidation message từ các node khác
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = body.split("\\|", 4);
+        if (parts.length < 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+
+        TwoLevelCache twoLevelCache = findTwoLevelCache(parts[2]);
+        if (twoLevelCache == null) {
+            return;
+        }
+        if (OP_CLEAR.equals(parts[1])) {
+            twoLevelCache.clearLocal();
+        } else if (OP_EVICT.equals(parts[1]) && parts.length == 4) {
+            twoLevelCache.evictLocal(parts[3]);
+        }
+        log.debug("Cache invalidation received: op={}, cache={}", parts[1], parts[2]);
+    }
+
+    /**
+     * Lấy cache đã tạo trên node này (bỏ TransactionAwareCacheDecorator), không tạo cache mới
+     */
+    TwoLevelCache findTwoLevelCache(String name) {
+        Cache cache = lookupCache(name);
+        if (cache instanceof TransactionAwareCacheDecorator) {
+            cache = ((TransactionAwareCacheDecorator) cache).getTargetCache();
+        }
+        return cache instanceof TwoLevelCache ? (TwoLevelCache) cache : null;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.keycloak.config;
+
+import com.example.keycloak.cache.CacheRefreshLoader;
+import com.example.keycloak.service.CacheExampleService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.function.Function;
+
+/**
+ * Loader cho early refresh (XFetch) của các cache trong RedisConfig
+ * Mỗi loader đọc lại từ nguồn giống @Cacheable tương ứng, nhưng không đi qua cache
+ */
+@Configuration
+public class CacheRefreshLoaderConfig {
+
+    @Bean
+    public CacheRefreshLoader usersRefreshLoader(CacheExampleService cacheExampleService) {
+        return loader("users", key -> cacheExampleService.loadUser((String) key));
+    }
+
+    @Bean
+    public CacheRefreshLoader tokensRefreshLoader(CacheExampleService cacheExampleService) {
+        return loader("tokens", key -> cacheExampleService.loadTokenOwner((String) key));
+    }
+
+    private static CacheRefreshLoader loader(String cacheName, Function<Object, Object> load) {
+        return new CacheRefreshLoader() {
+            @Override
+            public String getCacheName() {
+                return cacheName;
+            }
+
+            @Override
+            public Object load(Object key) {
+                return load.apply(key);
+            }
+        };
+    }
+}
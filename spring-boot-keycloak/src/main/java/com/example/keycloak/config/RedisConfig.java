@@ -1,20 +1,40 @@
 package com.example.keycloak.config;
 
+import com.example.keycloak.cache.CacheRefreshLoader;
+import com.example.keycloak.cache.TwoLevelCacheManager;
+import com.example.keycloak.dto.TicketDTO;
+import com.example.keycloak.dto.UserDTO;
+import com.example.keycloak.dto.UserInfo;
+import com.example.keycloak.serializer.CompressingRedisSerializer;
+import com.example.keycloak.serializer.RedisTypeRegistry;
+import com.example.keycloak.serializer.VersionedRedisSerializer;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import org.springframework.util.unit.DataSize;
+
 import java.time.Duration;
 
 /**
@@ -23,15 +43,30 @@ import java.time.Duration;
  */
 @Configuration
 @EnableCaching
+@EnableConfigurationProperties(TwoLevelCacheProperties.class)
 public class RedisConfig {
 
+    @Value("${redis.serializer.format:JSON}")
+    private VersionedRedisSerializer.Format serializerFormat;
+
+    // LZ4 compression cho value lớn, tắt mặc định cho tới khi mọi node đọc được value đã nén
+    @Value("${redis.compression.enabled:false}")
+    private boolean compressionEnabled;
+
+    @Value("${redis.compression.threshold:2KB}")
+    private DataSize compressionThreshold;
+
     /**
      * Configure RedisTemplate for basic Redis operations
      * @param connectionFactory Redis connection factory
+     * @param redisValueSerializer serializer cho values
+     * @param meterRegistry registry cho compression metrics
      * @return configured RedisTemplate
      */
     @Bean
-    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
+    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory,
+                                                       RedisSerializer<Object> redisValueSerializer,
+                                                       MeterRegistry meterRegistry) {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(connectionFactory);
         
@@ -40,45 +75,158 @@ public class RedisConfig {
         template.setKeySerializer(stringSerializer);
         template.setHashKeySerializer(stringSerializer);
         
-        // JSON serializer for values
-        GenericJackson2JsonRedisSerializer jsonSerializer = createJsonSerializer();
-        template.setValueSerializer(jsonSerializer);
-        template.setHashValueSerializer(jsonSerializer);
+        // Versioned (JSON/binary) serializer for values, nén LZ4 khi value lớn
+        RedisSerializer<Object> valueSerializer =
+                compressing(redisValueSerializer, meterRegistry, "redisTemplate");
+        template.setValueSerializer(valueSerializer);
+        template.setHashValueSerializer(valueSerializer);
         
         template.afterPropertiesSet();
         return template;
     }
 
     /**
-     * Configure Cache Manager with Redis
+     * Configure ReactiveRedisTemplate cho ReactiveRedisService
+     * Dùng chung Lettuce connection factory và value serializer với RedisTemplate
+     * (ghi bằng template nào cũng đọc được bằng template kia)
+     * @param connectionFactory reactive Redis connection factory
+     * @param redisValueSerializer serializer cho values
+     * @param meterRegistry registry cho compression metrics
+     * @return configured ReactiveRedisTemplate
+     */
+    @Bean
+    public ReactiveRedisTemplate<String, Object> reactiveRedisTemplate(ReactiveRedisConnectionFactory connectionFactory,
+                                                                       RedisSerializer<Object> redisValueSerializer,
+                                                                       MeterRegistry meterRegistry) {
+        RedisSerializer<Object> valueSerializer =
+                compressing(redisValueSerializer, meterRegistry, "reactiveRedisTemplate");
+        RedisSerializationContext<String, Object> context = RedisSerializationContext
+                .<String, Object>newSerializationContext(new StringRedisSerializer())
+                .value(valueSerializer)
+                .hashKey(new StringRedisSerializer())
+                .hashValue(valueSerializer)
+                .build();
+        return new ReactiveRedisTemplate<>(connectionFactory, context);
+    }
+
+    /**
+     * Configure Cache Manager: Caffeine L1 (per node) + Redis L2
+     * Khi cache.l1.enabled=false chỉ dùng RedisCacheManager
      * @param connectionFactory Redis connection factory
+     * @param redisValueSerializer serializer cho values
+     * @param meterRegistry registry cho compression metrics
+     * @param stringRedisTemplate template dùng để broadcast invalidation message
+     * @param l1Properties cấu hình L1 theo cache name
+     * @param refreshLoaders loader cho early refresh theo cache name
      * @return configured CacheManager
      */
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory connectionFactory) {
-        GenericJackson2JsonRedisSerializer jsonSerializer = createJsonSerializer();
-        
-        RedisCacheConfiguration cacheConfig = RedisCacheConfiguration.defaultCacheConfig()
-                .entryTtl(Duration.ofMinutes(10))  // Default TTL: 10 minutes
+    public CacheManager cacheManager(RedisConnectionFactory connectionFactory,
+                                     RedisSerializer<Object> redisValueSerializer,
+                                     MeterRegistry meterRegistry,
+                                     StringRedisTemplate stringRedisTemplate,
+                                     TwoLevelCacheProperties l1Properties,
+                                     ObjectProvider<CacheRefreshLoader> refreshLoaders) {
+        RedisCacheManager.RedisCacheManagerBuilder builder = RedisCacheManager.builder(connectionFactory)
+                // Default TTL: 10 minutes
+                .cacheDefaults(cacheConfiguration("default", Duration.ofMinutes(10),
+                        redisValueSerializer, meterRegistry))
+                // Define specific cache configurations
+                .withCacheConfiguration("users", 
+                        cacheConfiguration("users", Duration.ofMinutes(30), redisValueSerializer, meterRegistry))
+                .withCacheConfiguration("tokens", 
+                        cacheConfiguration("tokens", Duration.ofMinutes(60), redisValueSerializer, meterRegistry))
+                .withCacheConfiguration("sessions", 
+                        cacheConfiguration("sessions", Duration.ofMinutes(30), redisValueSerializer, meterRegistry));
+
+        if (!l1Properties.isEnabled()) {
+            return builder.transactionAware().build();
+        }
+
+        // Transaction-aware được áp dụng ở lớp ngoài để put/evict L1 và broadcast chỉ xảy ra sau commit
+        TwoLevelCacheManager twoLevelCacheManager =
+                new TwoLevelCacheManager(builder.build(), stringRedisTemplate, l1Properties, refreshLoaders);
+        twoLevelCacheManager.setTransactionAware(true);
+        return twoLevelCacheManager;
+    }
+
+    /**
+     * Cache configuration cho một cache name
+     * Mỗi cache có serializer riêng để compression metrics được tag theo cache name
+     */
+    private RedisCacheConfiguration cacheConfiguration(String cacheName, Duration ttl,
+                                                       RedisSerializer<Object> redisValueSerializer,
+                                                       MeterRegistry meterRegistry) {
+        return RedisCacheConfiguration.defaultCacheConfig()
+                .entryTtl(ttl)
                 .serializeKeysWith(
                         RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer())
                 )
                 .serializeValuesWith(
-                        RedisSerializationContext.SerializationPair.fromSerializer(jsonSerializer)
+                        RedisSerializationContext.SerializationPair.fromSerializer(
+                                compressing(redisValueSerializer, meterRegistry, cacheName))
                 )
                 .disableCachingNullValues();  // Don't cache null values
+    }
 
-        return RedisCacheManager.builder(connectionFactory)
-                .cacheDefaults(cacheConfig)
-                // Define specific cache configurations
-                .withCacheConfiguration("users", 
-                        cacheConfig.entryTtl(Duration.ofMinutes(30)))
-                .withCacheConfiguration("tokens", 
-                        cacheConfig.entryTtl(Duration.ofMinutes(60)))
-                .withCacheConfiguration("sessions", 
-                        cacheConfig.entryTtl(Duration.ofMinutes(30)))
-                .transactionAware()
-                .build();
+    /**
+     * Bọc serializer với LZ4 compression (nếu bật)
+     */
+    private RedisSerializer<Object> compressing(RedisSerializer<Object> serializer,
+                                                MeterRegistry meterRegistry, String cacheName) {
+        if (!compressionEnabled) {
+            return serializer;
+        }
+        return new CompressingRedisSerializer(serializer, (int) compressionThreshold.toBytes(),
+                meterRegistry, cacheName);
+    }
+
+    /**
+     * Listener nhận invalidation message cho L1 cache từ các node khác
+     * @param connectionFactory Redis connection factory
+     * @param cacheManager the cache manager
+     * @param l1Properties cấu hình L1 (channel name)
+     * @return listener container
+     */
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                            CacheManager cacheManager,
+                                                                            TwoLevelCacheProperties l1Properties) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        if (cacheManager instanceof TwoLevelCacheManager) {
+            container.addMessageListener((TwoLevelCacheManager) cacheManager,
+                    new ChannelTopic(l1Properties.getInvalidationChannel()));
+        }
+        return container;
+    }
+
+    /**
+     * Type registry cho binary format
+     * Chỉ đăng ký DTO (String/number đã gọn ở JSON vì không mang type metadata)
+     * Type id đã dùng KHÔNG được đổi hoặc tái sử dụng, chỉ thêm id mới
+     * @return registry of types allowed in binary format
+     */
+    @Bean
+    public RedisTypeRegistry redisTypeRegistry() {
+        return new RedisTypeRegistry()
+                .register(10, TicketDTO.class)
+                .register(11, UserDTO.class)
+                .register(12, UserInfo.class)
+                // Cache cả một trang danh sách ticket (List<TicketDTO>)
+                .registerList(20, TicketDTO.class);
+    }
+
+    /**
+     * Value serializer dùng chung cho RedisTemplate và cache
+     * Đọc được cả JSON và binary, format ghi được chọn bằng redis.serializer.format
+     * (giữ JSON cho đến khi tất cả các node đã deploy bản đọc được binary)
+     * @param redisTypeRegistry registry of binary types
+     * @return versioned serializer
+     */
+    @Bean
+    public RedisSerializer<Object> redisValueSerializer(RedisTypeRegistry redisTypeRegistry) {
+        return new VersionedRedisSerializer(createJsonSerializer(), redisTypeRegistry, serializerFormat);
     }
 
     /**
@@ -0,0 +1,13 @@
+package com.example.keycloak.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Scheduling Configuration
+ * Bật @Scheduled cho các job định kỳ (reconcile ticket counters...)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
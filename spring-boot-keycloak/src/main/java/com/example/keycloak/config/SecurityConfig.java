@@ -104,9 +104,9 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
         configuration.setAllowedOrigins(Collections.singletonList("http://localhost:4200"));
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH"));
         configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "Cache-Control",
-                "X-Requested-With", "Origin", "Accept", "X-CSRF-TOKEN"));
+                "X-Requested-With", "Origin", "Accept", "X-CSRF-TOKEN", "If-None-Match"));
         configuration.setAllowCredentials(true);
-        configuration.setExposedHeaders(Collections.singletonList("X-CSRF-TOKEN"));
+        configuration.setExposedHeaders(Arrays.asList("X-CSRF-TOKEN", "X-Next-Cursor", "ETag"));
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration);
         return source;
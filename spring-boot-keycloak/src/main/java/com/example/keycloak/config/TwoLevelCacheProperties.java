@@ -0,0 +1,91 @@
+package com.example.keycloak.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Two-Level Cache Properties
+ * Cấu hình L1 cache (Caffeine, local trên mỗi node) đặt trước Redis (L2)
+ *
+ * Ví dụ:
+ * cache.l1.caches.users.maximum-size=10000
+ * cache.l1.caches.users.ttl=5m
+ */
+@Data
+@ConfigurationProperties(prefix = "cache.l1")
+public class TwoLevelCacheProperties {
+
+    /**
+     * Bật/tắt L1 cache, khi tắt chỉ dùng RedisCacheManager
+     */
+    private boolean enabled = true;
+
+    /**
+     * Redis pub/sub channel dùng để broadcast evict/put giữa các node
+     */
+    private String invalidationChannel = "cache:l1:invalidation";
+
+    /**
+     * Cấu hình mặc định cho các cache không khai báo riêng
+     */
+    private Spec defaults = new Spec();
+
+    /**
+     * Cấu hình riêng theo cache name
+     */
+    private Map<String, Spec> caches = new HashMap<>();
+
+    /**
+     * Chống cache stampede khi load (@Cacheable(sync = true))
+     */
+    private Stampede stampede = new Stampede();
+
+    public Spec specFor(String cacheName) {
+        return caches.getOrDefault(cacheName, defaults);
+    }
+
+    @Data
+    public static class Spec {
+        private long maximumSize = 1000;
+        private Duration ttl = Duration.ofMinutes(1);
+    }
+
+    @Data
+    public static class Stampede {
+        private boolean enabled = true;
+
+        /**
+         * Thời gian giữ lease (SET NX PX) trong lúc một node load value
+         */
+        private Duration leaseTime = Duration.ofSeconds(5);
+
+        /**
+         * Thời gian tối đa các node/thread thua lease chờ value của node thắng
+         */
+        private Duration waitTime = Duration.ofSeconds(2);
+
+        private Duration pollInterval = Duration.ofMillis(25);
+
+        /**
+         * Thời gian giữ bản cũ (stale) để trả về khi chờ quá lâu
+         */
+        private Duration staleTtl = Duration.ofMinutes(10);
+
+        /**
+         * Hệ số beta của probabilistic early refresh (XFetch), 0 để tắt
+         * Chỉ áp dụng cho cache có bean CacheRefreshLoader
+         */
+        private double earlyRefreshBeta = 1.0;
+
+        /**
+         * Thời gian load ước lượng ban đầu, sau đó được đo lại theo từng cache
+         */
+        private Duration initialLoadTime = Duration.ofMillis(50);
+
+        private int refreshThreads = 2;
+    }
+}
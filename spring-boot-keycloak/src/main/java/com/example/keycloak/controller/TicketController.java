@@ -1,15 +1,31 @@
 package com.example.keycloak.controller;
 
 import com.example.keycloak.dto.*;
+import com.example.keycloak.service.TicketEventService;
+import com.example.keycloak.service.TicketExportService;
+import com.example.keycloak.service.TicketImportService;
+import com.example.keycloak.service.TicketSearchService;
 import com.example.keycloak.service.TicketService;
+import com.example.keycloak.service.TicketStatsService;
+import com.example.keycloak.service.TicketTimelineService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import java.io.IOException;
+import java.math.BigDecimal;
 import java.util.List;
 
 @RestController
@@ -18,25 +34,156 @@ import java.util.List;
 @Validated
 public class TicketController {
 
+    /**
+     * Header chứa cursor của trang tiếp theo, không có header nghĩa là đã tới trang cuối
+     * Body giữ nguyên dạng array để tương thích với client cũ
+     */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final TicketService ticketService;
+    private final TicketImportService ticketImportService;
+    private final TicketExportService ticketExportService;
+    private final TicketStatsService ticketStatsService;
+    private final TicketEventService ticketEventService;
+    private final TicketSearchService ticketSearchService;
+    private final TicketTimelineService ticketTimelineService;
 
+    /**
+     * Danh sách và chi tiết ticket hỗ trợ If-None-Match: ETag được tính trước,
+     * trùng thì trả về 304 mà không load/serialize body
+     */
     @GetMapping
-    public ResponseEntity<List<TicketDTO>> getAllTickets(Authentication authentication) {
-        if (authentication.getAuthorities().stream()
-                .anyMatch(a -> a.getAuthority().equals("ROLE_admin") || a.getAuthority().equals("ROLE_checker"))) {
-            return ResponseEntity.ok(ticketService.getAllTickets());
+    public ResponseEntity<List<TicketDTO>> getAllTickets(@RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size, Authentication authentication, WebRequest request) {
+        String maker = canViewAllTickets(authentication) ? null : authentication.getName();
+        String etag = ticketService.getTicketListEtag(maker, null, cursor, size);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        TicketPage page = maker == null
+                ? ticketService.getAllTickets(cursor, size)
+                : ticketService.getTicketsByMaker(maker, cursor, size);
+        return toResponse(page, etag);
+    }
+
+    /**
+     * Lọc theo bất kỳ tổ hợp status, maker, checker, khoảng amount và khoảng created/updated
+     * Maker chỉ lọc được trong ticket của mình
+     */
+    @GetMapping("/filter")
+    public ResponseEntity<List<TicketDTO>> filterTickets(TicketFilter filter,
+            @RequestParam(required = false) String cursor, @RequestParam(required = false) Integer size,
+            Authentication authentication) {
+        if (!canViewAllTickets(authentication)) {
+            filter.setMaker(authentication.getName());
         }
-        return ResponseEntity.ok(ticketService.getTicketsByMaker(authentication.getName()));
+        return toResponse(ticketService.getFilteredTickets(filter, cursor, size), null);
+    }
+
+    /**
+     * Delta sync: chỉ trả về ticket thay đổi sau cursor ?since= (bỏ trống để đọc từ đầu)
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<TicketChanges> getChanges(@RequestParam(required = false) String since,
+            @RequestParam(required = false) Integer size, Authentication authentication) {
+        String maker = canViewAllTickets(authentication) ? null : authentication.getName();
+        return ResponseEntity.ok(ticketService.getChanges(maker, since, size));
+    }
+
+    /**
+     * Export theo stream (NDJSON hoặc CSV), maker chỉ export được ticket của mình
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportTickets(@RequestParam(defaultValue = "ndjson") String format,
+            Authentication authentication) {
+        TicketFileFormat fileFormat = TicketFileFormat.fromName(format);
+        String maker = canViewAllTickets(authentication) ? null : authentication.getName();
+        StreamingResponseBody body = out -> ticketExportService.exportTickets(out, fileFormat, maker);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=tickets." + fileFormat.getExtension())
+                .contentType(fileFormat.getMediaType())
+                .body(body);
+    }
+
+    /**
+     * Full-text search trên title/description, kết quả xếp theo độ liên quan
+     * Maker chỉ tìm được ticket của mình
+     */
+    @GetMapping("/search")
+    public ResponseEntity<TicketSearchResult> searchTickets(@RequestParam(required = false) String q,
+            @RequestParam(required = false) TicketStatus status, @RequestParam(required = false) String maker,
+            @RequestParam(required = false) BigDecimal minAmount, @RequestParam(required = false) BigDecimal maxAmount,
+            @RequestParam(defaultValue = "0") int page, @RequestParam(required = false) Integer size,
+            Authentication authentication) {
+        String searchMaker = canViewAllTickets(authentication) ? maker : authentication.getName();
+        return ResponseEntity.ok(ticketService.searchTickets(q, status, searchMaker, minAmount, maxAmount,
+                page, size));
+    }
+
+    /**
+     * Rebuild search index từ bảng tickets (chạy nền)
+     */
+    @PostMapping("/search/rebuild")
+    @PreAuthorize("hasRole('admin')")
+    public ResponseEntity<Void> rebuildSearchIndex() {
+        ticketSearchService.rebuild();
+        return ResponseEntity.accepted().build();
+    }
+
+    /**
+     * Server-Sent Events: event "ticket" mỗi khi ticket được tạo hoặc chuyển trạng thái
+     * Maker chỉ nhận event ticket của mình
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents(Authentication authentication) {
+        return ticketEventService.subscribe(authentication.getName(), canViewAllTickets(authentication));
+    }
+
+    /**
+     * Counters cho dashboard (đọc từ Redis, không đếm lại bảng tickets)
+     * Maker chỉ xem được thống kê của mình
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<TicketStatsDTO> getStats(@RequestParam(required = false) String maker,
+            @RequestParam(defaultValue = "7") @Min(1) @Max(90) int days, Authentication authentication) {
+        String statsMaker = canViewAllTickets(authentication) ? maker : authentication.getName();
+        return ResponseEntity.ok(ticketStatsService.getStats(statsMaker, days));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<TicketDTO> getTicketById(@PathVariable Long id) {
-        return ResponseEntity.ok(ticketService.getTicketById(id));
+    public ResponseEntity<TicketDTO> getTicketById(@PathVariable Long id, WebRequest request) {
+        String etag = ticketService.getTicketEtag(id);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .body(ticketService.getTicketById(id));
+    }
+
+    /**
+     * Lịch sử thao tác của ticket (audit log), cũ nhất trước
+     */
+    @GetMapping("/{id}/timeline")
+    public ResponseEntity<List<TicketTimelineEntry>> getTicketTimeline(@PathVariable Long id,
+            @RequestParam(required = false) String cursor, @RequestParam(required = false) Integer size) {
+        TicketTimeline timeline = ticketTimelineService.getTimeline(id, cursor, size);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (timeline.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, timeline.getNextCursor());
+        }
+        return response.body(timeline.getItems());
     }
 
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<TicketDTO>> getTicketsByStatus(@PathVariable TicketStatus status) {
-        return ResponseEntity.ok(ticketService.getTicketsByStatus(status));
+    public ResponseEntity<List<TicketDTO>> getTicketsByStatus(@PathVariable TicketStatus status,
+            @RequestParam(required = false) String cursor, @RequestParam(required = false) Integer size,
+            WebRequest request) {
+        String etag = ticketService.getTicketListEtag(null, status, cursor, size);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return toResponse(ticketService.getTicketsByStatus(status, cursor, size), etag);
     }
 
     @PostMapping
@@ -64,4 +211,60 @@ public class TicketController {
             Authentication authentication) {
         return ResponseEntity.ok(ticketService.rejectTicket(id, authentication.getName(), request.getReason()));
     }
+
+    /**
+     * Work queue: claim các ticket chờ duyệt tiếp theo, checker khác sẽ không nhận các ticket này cho tới khi lease hết hạn
+     */
+    @PostMapping("/claim-next")
+    @PreAuthorize("hasRole('checker') or hasRole('admin')")
+    public ResponseEntity<TicketClaim> claimNextTickets(@RequestParam(required = false) Integer batch,
+            Authentication authentication) {
+        return ResponseEntity.ok(ticketService.claimNextTickets(authentication.getName(), batch));
+    }
+
+    @PostMapping("/batch/approve")
+    @PreAuthorize("hasRole('checker') or hasRole('admin')")
+    public ResponseEntity<List<BatchTicketResult>> approveTickets(@Valid @RequestBody BatchTicketRequest request,
+            Authentication authentication) {
+        return ResponseEntity.ok(ticketService.approveTickets(request.getIds(), authentication.getName()));
+    }
+
+    @PostMapping("/batch/reject")
+    @PreAuthorize("hasRole('checker') or hasRole('admin')")
+    public ResponseEntity<List<BatchTicketResult>> rejectTickets(@Valid @RequestBody BatchRejectionRequest request,
+            Authentication authentication) {
+        return ResponseEntity.ok(ticketService.rejectTickets(request.getIds(), authentication.getName(),
+                request.getReason()));
+    }
+
+    /**
+     * Bulk import: body là CSV (header title,description,amount) hoặc NDJSON, đọc theo stream
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    @PreAuthorize("hasRole('maker') or hasRole('admin') or hasRole('user')")
+    public ResponseEntity<TicketImportResult> importTickets(HttpServletRequest request,
+            Authentication authentication) throws IOException {
+        TicketFileFormat format = TicketFileFormat.fromContentType(request.getContentType());
+        return ResponseEntity.ok(ticketImportService.importTickets(request.getInputStream(), format,
+                authentication.getName()));
+    }
+
+    private boolean canViewAllTickets(Authentication authentication) {
+        return authentication.getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ROLE_admin") || a.getAuthority().equals("ROLE_checker"));
+    }
+
+    /**
+     * @param etag null nếu endpoint không hỗ trợ conditional GET
+     */
+    private ResponseEntity<List<TicketDTO>> toResponse(TicketPage page, String etag) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (etag != null) {
+            response.eTag(etag);
+        }
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
 }
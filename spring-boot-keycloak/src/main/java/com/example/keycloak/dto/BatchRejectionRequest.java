@@ -0,0 +1,13 @@
+package com.example.keycloak.dto;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import javax.validation.constraints.NotBlank;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class BatchRejectionRequest extends BatchTicketRequest {
+    @NotBlank(message = "Reason is required")
+    private String reason;
+}
@@ -0,0 +1,15 @@
+package com.example.keycloak.dto;
+
+import lombok.Data;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@Data
+public class BatchTicketRequest {
+    @NotEmpty(message = "Ticket ids are required")
+    @Size(max = 500, message = "At most 500 tickets per batch")
+    private List<@NotNull Long> ids;
+}
@@ -0,0 +1,21 @@
+package com.example.keycloak.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Kết quả của từng ticket trong batch approve/reject
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTicketResult {
+    private Long id;
+    private boolean success;
+    // Trạng thái sau khi xử lý (null nếu ticket không tồn tại)
+    private TicketStatus status;
+    private String error;
+}
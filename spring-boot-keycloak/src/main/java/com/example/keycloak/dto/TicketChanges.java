@@ -0,0 +1,25 @@
+package com.example.keycloak.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Kết quả của GET /api/tickets/changes
+ * Client upsert items theo id rồi lưu lại cursor cho lần gọi tiếp theo
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TicketChanges {
+    // Ticket thay đổi sau cursor, cũ nhất trước
+    private List<TicketDTO> items;
+    // Luôn có giá trị: gửi lại qua ?since= (không đổi nếu không có thay đổi mới)
+    private String cursor;
+    // true nếu còn thay đổi chưa trả về, client nên gọi tiếp ngay
+    private boolean hasMore;
+}
@@ -0,0 +1,23 @@
+package com.example.keycloak.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Kết quả của POST /api/tickets/claim-next
+ * Các ticket được giữ cho checker tới leaseExpiresAt, sau đó checker khác có thể claim lại
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TicketClaim {
+    // Cũ nhất trước, rỗng nếu không còn ticket chờ duyệt
+    private List<TicketDTO> tickets;
+    private LocalDateTime leaseExpiresAt;
+}
@@ -0,0 +1,38 @@
+package com.example.keycloak.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Cursor cho keyset pagination trên (timestamp, id)
+ * timestamp là created_at với các danh sách ticket, updated_at với GET /api/tickets/changes,
+ * timestamp của audit log với GET /api/tickets/{id}/timeline
+ * Encode thành chuỗi base64url để client chỉ cần gửi lại nguyên văn
+ */
+@Data
+@AllArgsConstructor
+public class TicketCursor {
+    private LocalDateTime timestamp;
+    private Long id;
+
+    public String encode() {
+        String raw = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static TicketCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new TicketCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.keycloak.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Event đẩy qua GET /api/tickets/events khi ticket được tạo hoặc chuyển trạng thái
+ * Client nhận event rồi cập nhật/đọc lại ticket tương ứng thay vì poll cả danh sách
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TicketEvent {
+    private Long id;
+    private String maker;
+    // null khi ticket vừa được tạo
+    private TicketStatus oldStatus;
+    private TicketStatus newStatus;
+    private String checker;
+    private LocalDateTime timestamp;
+}
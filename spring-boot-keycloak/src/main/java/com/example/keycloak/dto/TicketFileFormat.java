@@ -0,0 +1,43 @@
+package com.example.keycloak.dto;
+
+import org.springframework.http.MediaType;
+
+import java.util.Locale;
+
+/**
+ * Định dạng file cho bulk import/export ticket
+ */
+public enum TicketFileFormat {
+    CSV("text/csv", "csv"),
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    TicketFileFormat(String mediaType, String extension) {
+        this.mediaType = MediaType.parseMediaType(mediaType);
+        this.extension = extension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static TicketFileFormat fromName(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported format: " + name);
+        }
+    }
+
+    public static TicketFileFormat fromContentType(String contentType) {
+        return contentType != null && MediaType.parseMediaType(contentType).isCompatibleWith(CSV.mediaType)
+                ? CSV
+                : NDJSON;
+    }
+}
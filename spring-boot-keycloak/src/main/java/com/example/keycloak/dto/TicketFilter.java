@@ -0,0 +1,32 @@
+package com.example.keycloak.dto;
+
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Điều kiện lọc của GET /api/tickets/filter, mọi field đều optional và được kết hợp bằng AND
+ * Khoảng thời gian: from tính cả biên, to không tính biên
+ */
+@Data
+public class TicketFilter {
+    private TicketStatus status;
+    private String maker;
+    private String checker;
+    private BigDecimal minAmount;
+    private BigDecimal maxAmount;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createdFrom;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createdTo;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime updatedFrom;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime updatedTo;
+}
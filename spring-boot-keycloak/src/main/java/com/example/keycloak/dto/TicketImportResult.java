@@ -0,0 +1,33 @@
+package com.example.keycloak.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Kết quả bulk import ticket
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TicketImportResult {
+    private long totalRows;
+    private long imported;
+    private long failed;
+    private List<RowError> errors;
+    // true nếu số lỗi vượt quá giới hạn và danh sách errors bị cắt bớt
+    private boolean errorsTruncated;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        // Số dòng trong file upload (CSV: dòng bắt đầu của record, tính cả header)
+        private long line;
+        private String message;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.keycloak.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TicketPage {
+    private List<TicketDTO> items;
+    // null khi đã tới trang cuối
+    private String nextCursor;
+}
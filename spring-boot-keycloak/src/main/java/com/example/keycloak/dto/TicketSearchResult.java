@@ -0,0 +1,24 @@
+package com.example.keycloak.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Kết quả của GET /api/tickets/search, items sắp xếp theo độ liên quan
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TicketSearchResult {
+    private List<TicketDTO> items;
+    private int page;
+    private int size;
+    private long total;
+    // false khi số kết quả quá lớn, total chỉ là giá trị tối thiểu
+    private boolean totalExact;
+}
@@ -0,0 +1,33 @@
+package com.example.keycloak.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Thống kê ticket cho dashboard
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TicketStatsDTO {
+    // null nghĩa là thống kê của tất cả maker
+    private String maker;
+    // Số ticket và tổng amount hiện tại theo trạng thái
+    private Map<TicketStatus, StatusTotals> byStatus;
+    // Số ticket chuyển sang từng trạng thái theo ngày (yyyy-MM-dd), chỉ có khi maker = null
+    private Map<String, Map<TicketStatus, StatusTotals>> byDay;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StatusTotals {
+        private long count;
+        private BigDecimal amount;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.keycloak.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Projection cho danh sách ticket
+ * Chỉ select các cột cần cho list view (không có description TEXT), không hydrate entity
+ */
+public interface TicketSummary {
+    Long getId();
+
+    String getTitle();
+
+    TicketStatus getStatus();
+
+    BigDecimal getAmount();
+
+    String getMaker();
+
+    String getChecker();
+
+    String getRejectionReason();
+
+    LocalDateTime getCreatedAt();
+
+    LocalDateTime getUpdatedAt();
+}
@@ -0,0 +1,23 @@
+package com.example.keycloak.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Một thao tác trên ticket (đọc từ audit_log)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TicketTimelineEntry {
+    private Long id;
+    private String action;
+    private String userId;
+    private String details;
+    private LocalDateTime timestamp;
+}
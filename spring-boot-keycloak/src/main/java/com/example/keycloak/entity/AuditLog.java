@@ -10,7 +10,10 @@ import javax.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "audit_log")
+@Table(name = "audit_log", indexes = {
+        // Timeline của một entity (GET /api/tickets/{id}/timeline), cũng có trong init-db/01-init.sql
+        @Index(name = "idx_audit_log_entity", columnList = "entity_type, entity_id, timestamp")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -13,15 +13,34 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "tickets")
+@Table(name = "tickets", indexes = {
+        // Keyset pagination cho các danh sách ticket (sắp xếp theo created_at, id)
+        @Index(name = "idx_tickets_created_at_id", columnList = "created_at, id"),
+        @Index(name = "idx_tickets_status_created_at_id", columnList = "status, created_at, id"),
+        @Index(name = "idx_tickets_maker_created_at_id", columnList = "maker_username, created_at, id"),
+        // GET /api/tickets/filter (xem TicketFilterRepository)
+        @Index(name = "idx_tickets_checker_created_at_id", columnList = "checker_username, created_at, id"),
+        @Index(name = "idx_tickets_maker_status_created_at_id", columnList = "maker_username, status, created_at, id"),
+        @Index(name = "idx_tickets_amount", columnList = "amount"),
+        // Delta sync (GET /api/tickets/changes) theo (updated_at, id)
+        @Index(name = "idx_tickets_updated_at_id", columnList = "updated_at, id"),
+        @Index(name = "idx_tickets_maker_updated_at_id", columnList = "maker_username, updated_at, id"),
+        // ETag của GET /api/tickets/status/{status} (count + max(updated_at) chỉ đọc index)
+        @Index(name = "idx_tickets_status_updated_at", columnList = "status, updated_at"),
+        // Giải phóng claim hết hạn
+        @Index(name = "idx_tickets_claim_expires_at", columnList = "claim_expires_at")
+})
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class Ticket {
 
+    // Sequence thay vì IDENTITY để Hibernate batch được INSERT (hibernate.jdbc.batch_size)
+    // Dùng chung sequence tickets_id_seq của cột bigserial cũ nên allocationSize phải là 1
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tickets_seq")
+    @SequenceGenerator(name = "tickets_seq", sequenceName = "tickets_id_seq", allocationSize = 1)
     private Long id;
 
     @Column(nullable = false)
@@ -45,6 +64,13 @@ public class Ticket {
     @Column(name = "rejection_reason")
     private String rejectionReason;
 
+    // Checker đang giữ ticket (POST /api/tickets/claim-next), hết hiệu lực sau claim_expires_at
+    @Column(name = "claimed_by")
+    private String claimedBy;
+
+    @Column(name = "claim_expires_at")
+    private LocalDateTime claimExpiresAt;
+
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
@@ -52,4 +78,10 @@ public class Ticket {
     @UpdateTimestamp
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
+
+    // Optimistic locking cho các thao tác sửa ticket qua entity
+    // (chuyển trạng thái dùng UPDATE có điều kiện trong TicketRepository và cũng tăng version)
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
 }
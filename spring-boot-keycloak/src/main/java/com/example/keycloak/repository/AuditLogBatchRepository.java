@@ -0,0 +1,41 @@
+package com.example.keycloak.repository;
+
+import com.example.keycloak.entity.AuditLog;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Ghi audit log theo JDBC batch (một round trip cho nhiều row)
+ * Chạy trong transaction hiện tại của JPA
+ */
+@Repository
+@RequiredArgsConstructor
+public class AuditLogBatchRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO audit_log (action, entity_type, entity_id, user_id, details, timestamp) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insertAll(List<AuditLog> auditLogs) {
+        if (auditLogs.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, auditLogs, BATCH_SIZE, (ps, auditLog) -> {
+            LocalDateTime timestamp = auditLog.getTimestamp() != null ? auditLog.getTimestamp() : LocalDateTime.now();
+            ps.setString(1, auditLog.getAction());
+            ps.setString(2, auditLog.getEntityType());
+            ps.setString(3, auditLog.getEntityId());
+            ps.setString(4, auditLog.getUserId());
+            ps.setString(5, auditLog.getDetails());
+            ps.setTimestamp(6, Timestamp.valueOf(timestamp));
+        });
+    }
+}
@@ -1,9 +1,13 @@
 package com.example.keycloak.repository;
 
 import com.example.keycloak.entity.AuditLog;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -11,4 +15,18 @@ public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
     List<AuditLog> findByUserId(String userId);
 
     List<AuditLog> findByEntityTypeAndEntityId(String entityType, String entityId);
+
+    // Timeline: cũ nhất trước, keyset pagination theo (timestamp, id) trên idx_audit_log_entity
+
+    @Query("SELECT a FROM AuditLog a WHERE a.entityType = :entityType AND a.entityId = :entityId " +
+            "ORDER BY a.timestamp ASC, a.id ASC")
+    List<AuditLog> findTimeline(@Param("entityType") String entityType, @Param("entityId") String entityId,
+                                Pageable pageable);
+
+    @Query("SELECT a FROM AuditLog a WHERE a.entityType = :entityType AND a.entityId = :entityId " +
+            "AND a.timestamp >= :timestamp AND (a.timestamp > :timestamp OR a.id > :id) " +
+            "ORDER BY a.timestamp ASC, a.id ASC")
+    List<AuditLog> findTimelineAfter(@Param("entityType") String entityType, @Param("entityId") String entityId,
+                                     @Param("timestamp") LocalDateTime timestamp, @Param("id") Long id,
+                                     Pageable pageable);
 }
@@ -0,0 +1,118 @@
+package com.example.keycloak.repository;
+
+import com.example.keycloak.dto.TicketCursor;
+import com.example.keycloak.dto.TicketDTO;
+import com.example.keycloak.dto.TicketFilter;
+import com.example.keycloak.dto.TicketStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lọc ticket theo nhiều điều kiện bằng một câu SQL (chỉ thêm các điều kiện client gửi lên)
+ *
+ * Mỗi điều kiện đều có index để PostgreSQL dùng làm điểm bắt đầu (xem @Table indexes của Ticket):
+ * - status / maker / checker: (cột, created_at, id), khớp luôn thứ tự sắp xếp của keyset pagination
+ * - maker + status: (maker_username, status, created_at, id)
+ * - amount range: (amount); created/updated range: (created_at, id) / (updated_at, id)
+ * - Nhiều điều kiện cùng lúc: planner chọn index chọn lọc nhất hoặc kết hợp bằng BitmapAnd
+ * TicketFilterRepositoryPlanTest kiểm tra EXPLAIN của mọi tổ hợp điều kiện không có Seq Scan
+ */
+@Repository
+@RequiredArgsConstructor
+public class TicketFilterRepository {
+
+    private static final String SELECT_SQL = "SELECT id, title, status, amount, maker_username, checker_username, " +
+            "rejection_reason, created_at, updated_at FROM tickets";
+    // Keyset pagination giống TicketRepository: mới nhất trước theo (created_at, id)
+    private static final String KEYSET_AFTER = "created_at <= :cursorCreatedAt " +
+            "AND (created_at < :cursorCreatedAt OR id < :cursorId)";
+    private static final String KEYSET_ORDER = " ORDER BY created_at DESC, id DESC LIMIT :limit";
+
+    private static final RowMapper<TicketDTO> ROW_MAPPER = (rs, rowNum) -> TicketDTO.builder()
+            .id(rs.getLong("id"))
+            .title(rs.getString("title"))
+            .status(TicketStatus.valueOf(rs.getString("status")))
+            .amount(rs.getBigDecimal("amount"))
+            .maker(rs.getString("maker_username"))
+            .checker(rs.getString("checker_username"))
+            .rejectionReason(rs.getString("rejection_reason"))
+            .createdAt(toLocalDateTime(rs.getTimestamp("created_at")))
+            .updatedAt(toLocalDateTime(rs.getTimestamp("updated_at")))
+            .build();
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    /**
+     * @param filter điều kiện lọc
+     * @param after cursor của trang trước, null cho trang đầu
+     * @param limit số ticket tối đa
+     * @return ticket thỏa điều kiện (không có description), mới nhất trước
+     */
+    public List<TicketDTO> findPage(TicketFilter filter, TicketCursor after, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource("limit", limit);
+        return namedParameterJdbcTemplate.query(buildQuery(filter, after, params), params, ROW_MAPPER);
+    }
+
+    /**
+     * SQL của findPage, tham số được thêm vào params (dùng chung với test kiểm tra query plan)
+     */
+    static String buildQuery(TicketFilter filter, TicketCursor after, MapSqlParameterSource params) {
+        List<String> conditions = new ArrayList<>();
+
+        if (filter.getStatus() != null) {
+            conditions.add("status = :status");
+            params.addValue("status", filter.getStatus().name());
+        }
+        if (filter.getMaker() != null) {
+            conditions.add("maker_username = :maker");
+            params.addValue("maker", filter.getMaker());
+        }
+        if (filter.getChecker() != null) {
+            conditions.add("checker_username = :checker");
+            params.addValue("checker", filter.getChecker());
+        }
+        if (filter.getMinAmount() != null) {
+            conditions.add("amount >= :minAmount");
+            params.addValue("minAmount", filter.getMinAmount());
+        }
+        if (filter.getMaxAmount() != null) {
+            conditions.add("amount <= :maxAmount");
+            params.addValue("maxAmount", filter.getMaxAmount());
+        }
+        addRange(conditions, params, "created_at", "created", filter.getCreatedFrom(), filter.getCreatedTo());
+        addRange(conditions, params, "updated_at", "updated", filter.getUpdatedFrom(), filter.getUpdatedTo());
+        if (after != null) {
+            conditions.add(KEYSET_AFTER);
+            params.addValue("cursorCreatedAt", Timestamp.valueOf(after.getTimestamp()));
+            params.addValue("cursorId", after.getId());
+        }
+
+        return SELECT_SQL
+                + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions))
+                + KEYSET_ORDER;
+    }
+
+    private static void addRange(List<String> conditions, MapSqlParameterSource params, String column, String name,
+                                 LocalDateTime from, LocalDateTime to) {
+        if (from != null) {
+            conditions.add(column + " >= :" + name + "From");
+            params.addValue(name + "From", Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            conditions.add(column + " < :" + name + "To");
+            params.addValue(name + "To", Timestamp.valueOf(to));
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
@@ -1,15 +1,141 @@
 package com.example.keycloak.repository;
 
+import com.example.keycloak.dto.TicketSummary;
 import com.example.keycloak.entity.Ticket;
 import com.example.keycloak.dto.TicketStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface TicketRepository extends JpaRepository<Ticket, Long> {
-    List<Ticket> findByMaker(String maker);
 
-    List<Ticket> findByStatus(TicketStatus status);
+    // Các cột của TicketSummary (alias phải trùng tên getter)
+    String SUMMARY_SELECT = "SELECT t.id AS id, t.title AS title, t.status AS status, t.amount AS amount, " +
+            "t.maker AS maker, t.checker AS checker, t.rejectionReason AS rejectionReason, " +
+            "t.createdAt AS createdAt, t.updatedAt AS updatedAt FROM Ticket t ";
+
+    // Keyset pagination: mới nhất trước, sắp xếp theo (created_at, id) DESC
+    // Điều kiện created_at <= :createdAt để index range scan, phần OR chỉ lọc các row cùng created_at
+    String KEYSET_AFTER = "t.createdAt <= :createdAt AND (t.createdAt < :createdAt OR t.id < :id) ";
+    String KEYSET_ORDER = "ORDER BY t.createdAt DESC, t.id DESC";
+
+    @Query(SUMMARY_SELECT + KEYSET_ORDER)
+    List<TicketSummary> findFirstPage(Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE " + KEYSET_AFTER + KEYSET_ORDER)
+    List<TicketSummary> findPageAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id,
+                                      Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE t.maker = :maker " + KEYSET_ORDER)
+    List<TicketSummary> findFirstPageByMaker(@Param("maker") String maker, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE t.maker = :maker AND " + KEYSET_AFTER + KEYSET_ORDER)
+    List<TicketSummary> findPageByMakerAfter(@Param("maker") String maker, @Param("createdAt") LocalDateTime createdAt,
+                                             @Param("id") Long id, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE t.status = :status " + KEYSET_ORDER)
+    List<TicketSummary> findFirstPageByStatus(@Param("status") TicketStatus status, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE t.status = :status AND " + KEYSET_AFTER + KEYSET_ORDER)
+    List<TicketSummary> findPageByStatusAfter(@Param("status") TicketStatus status,
+                                              @Param("createdAt") LocalDateTime createdAt,
+                                              @Param("id") Long id, Pageable pageable);
+
+    // Delta sync: ticket thay đổi sau cursor, cũ nhất trước, sắp xếp theo (updated_at, id) ASC
+    // Luôn giới hạn updated_at < :until để không trả về các thay đổi có thể chưa commit hết
+    String CHANGES_AFTER = "t.updatedAt >= :updatedAt AND (t.updatedAt > :updatedAt OR t.id > :id) AND ";
+    String CHANGES_UNTIL = "t.updatedAt < :until ";
+    String CHANGES_ORDER = "ORDER BY t.updatedAt ASC, t.id ASC";
+
+    @Query(SUMMARY_SELECT + "WHERE " + CHANGES_UNTIL + CHANGES_ORDER)
+    List<TicketSummary> findChanges(@Param("until") LocalDateTime until, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE " + CHANGES_AFTER + CHANGES_UNTIL + CHANGES_ORDER)
+    List<TicketSummary> findChangesAfter(@Param("updatedAt") LocalDateTime updatedAt, @Param("id") Long id,
+                                         @Param("until") LocalDateTime until, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE t.maker = :maker AND " + CHANGES_UNTIL + CHANGES_ORDER)
+    List<TicketSummary> findChangesByMaker(@Param("maker") String maker, @Param("until") LocalDateTime until,
+                                           Pageable pageable);
+
+    @Query(SUMMARY_SELECT + "WHERE t.maker = :maker AND " + CHANGES_AFTER + CHANGES_UNTIL + CHANGES_ORDER)
+    List<TicketSummary> findChangesByMakerAfter(@Param("maker") String maker,
+                                                @Param("updatedAt") LocalDateTime updatedAt, @Param("id") Long id,
+                                                @Param("until") LocalDateTime until, Pageable pageable);
+
+    // Version cho ETag của một ticket
+
+    @Query("SELECT t.version FROM Ticket t WHERE t.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    // Chuyển trạng thái bằng một câu UPDATE có điều kiện (PostgreSQL RETURNING):
+    // kiểm tra trạng thái và maker/checker ngay trong WHERE nên hai checker không thể cùng duyệt một ticket.
+    // Empty nghĩa là ticket không tồn tại hoặc không thỏa điều kiện chuyển trạng thái
+
+    // Ticket đang được checker khác claim (lease chưa hết hạn) thì không approve/reject được
+    String CLAIM_ALLOWS = "AND (claimed_by IS NULL OR claimed_by = :checker OR claim_expires_at < :now) ";
+    String CLAIM_CLEAR = "claimed_by = NULL, claim_expires_at = NULL ";
+
+    @Query(value = "UPDATE tickets SET status = 'SUBMITTED', updated_at = :now, version = version + 1 " +
+            "WHERE id = :id AND maker_username = :maker AND status IN ('DRAFT', 'REJECTED') " +
+            "RETURNING *", nativeQuery = true)
+    Optional<Ticket> submit(@Param("id") Long id, @Param("maker") String maker, @Param("now") LocalDateTime now);
+
+    @Query(value = "UPDATE tickets SET status = 'APPROVED', checker_username = :checker, updated_at = :now, " +
+            "version = version + 1, " + CLAIM_CLEAR +
+            "WHERE id = :id AND status = 'SUBMITTED' AND maker_username <> :checker " + CLAIM_ALLOWS +
+            "RETURNING *", nativeQuery = true)
+    Optional<Ticket> approve(@Param("id") Long id, @Param("checker") String checker, @Param("now") LocalDateTime now);
+
+    @Query(value = "UPDATE tickets SET status = 'REJECTED', checker_username = :checker, rejection_reason = :reason, " +
+            "updated_at = :now, version = version + 1, " + CLAIM_CLEAR +
+            "WHERE id = :id AND status = 'SUBMITTED' AND maker_username <> :checker " + CLAIM_ALLOWS +
+            "RETURNING *", nativeQuery = true)
+    Optional<Ticket> reject(@Param("id") Long id, @Param("checker") String checker, @Param("reason") String reason,
+                            @Param("now") LocalDateTime now);
+
+    // Batch approve/reject: một câu UPDATE cho cả danh sách, trả về các ticket đã chuyển trạng thái
+
+    @Query(value = "UPDATE tickets SET status = 'APPROVED', checker_username = :checker, updated_at = :now, " +
+            "version = version + 1, " + CLAIM_CLEAR +
+            "WHERE id IN (:ids) AND status = 'SUBMITTED' AND maker_username <> :checker " + CLAIM_ALLOWS +
+            "RETURNING *", nativeQuery = true)
+    List<Ticket> approveAll(@Param("ids") Collection<Long> ids, @Param("checker") String checker,
+                            @Param("now") LocalDateTime now);
+
+    @Query(value = "UPDATE tickets SET status = 'REJECTED', checker_username = :checker, rejection_reason = :reason, " +
+            "updated_at = :now, version = version + 1, " + CLAIM_CLEAR +
+            "WHERE id IN (:ids) AND status = 'SUBMITTED' AND maker_username <> :checker " + CLAIM_ALLOWS +
+            "RETURNING *", nativeQuery = true)
+    List<Ticket> rejectAll(@Param("ids") Collection<Long> ids, @Param("checker") String checker,
+                           @Param("reason") String reason, @Param("now") LocalDateTime now);
+
+    // Work queue cho checker: claim các ticket SUBMITTED cũ nhất chưa ai giữ (hoặc lease đã hết hạn).
+    // FOR UPDATE SKIP LOCKED: các checker claim đồng thời bỏ qua row đang bị lock nên nhận các ticket khác nhau.
+    // Claim không đổi updated_at/version (không phải thay đổi nội dung ticket)
+
+    @Query(value = "UPDATE tickets SET claimed_by = :checker, claim_expires_at = :expiresAt " +
+            "WHERE id IN (SELECT id FROM tickets " +
+            "WHERE status = 'SUBMITTED' AND maker_username <> :checker " +
+            "AND (claimed_by IS NULL OR claim_expires_at < :now) " +
+            "ORDER BY created_at, id LIMIT :batch FOR UPDATE SKIP LOCKED) " +
+            "RETURNING *", nativeQuery = true)
+    List<Ticket> claimNext(@Param("checker") String checker, @Param("batch") int batch,
+                           @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Query(value = "UPDATE tickets SET " + CLAIM_CLEAR + "WHERE claim_expires_at < :now", nativeQuery = true)
+    int releaseExpiredClaims(@Param("now") LocalDateTime now);
+
+    @Query(SUMMARY_SELECT + "WHERE t.id IN :ids")
+    List<TicketSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
 }
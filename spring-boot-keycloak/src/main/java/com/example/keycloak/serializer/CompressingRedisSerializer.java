@@ -0,0 +1,115 @@
+package com.example.keycloak.serializer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compressing Redis Serializer
+ * Nén LZ4 các value lớn hơn threshold, value nhỏ giữ nguyên bytes của delegate
+ *
+ * Layout khi nén: [0x10][original length: 4 bytes][LZ4 block]
+ * Byte đầu 0x10 không trùng với header của {@link VersionedRedisSerializer} và JSON,
+ * nên value cũ (chưa nén) vẫn đọc được bình thường
+ *
+ * Metrics (tag cache=name):
+ * - redis.value.compression.ratio: original size / compressed size
+ * - redis.value.compress / redis.value.decompress: latency
+ * - redis.value.compression.skipped: số value nhỏ hơn threshold hoặc nén không hiệu quả
+ */
+public class CompressingRedisSerializer implements RedisSerializer<Object> {
+
+    static final byte COMPRESSED_LZ4 = 0x10;
+    private static final int HEADER_LENGTH = 5;
+
+    private static final LZ4Factory LZ4 = LZ4Factory.fastestInstance();
+
+    private final RedisSerializer<Object> delegate;
+    private final int threshold;
+    private final LZ4Compressor compressor = LZ4.fastCompressor();
+    private final LZ4FastDecompressor decompressor = LZ4.fastDecompressor();
+
+    private final DistributionSummary compressionRatio;
+    private final Timer compressTimer;
+    private final Timer decompressTimer;
+    private final Counter skipped;
+
+    public CompressingRedisSerializer(RedisSerializer<Object> delegate, int threshold,
+                                      MeterRegistry meterRegistry, String cacheName) {
+        this.delegate = delegate;
+        this.threshold = threshold;
+        this.compressionRatio = DistributionSummary.builder("redis.value.compression.ratio")
+                .description("Original size divided by compressed size")
+                .tag("cache", cacheName)
+                .register(meterRegistry);
+        this.compressTimer = Timer.builder("redis.value.compress")
+                .tag("cache", cacheName)
+                .register(meterRegistry);
+        this.decompressTimer = Timer.builder("redis.value.decompress")
+                .tag("cache", cacheName)
+                .register(meterRegistry);
+        this.skipped = Counter.builder("redis.value.compression.skipped")
+                .tag("cache", cacheName)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        byte[] raw = delegate.serialize(value);
+        if (raw == null || raw.length < threshold) {
+            skipped.increment();
+            return raw;
+        }
+
+        long start = System.nanoTime();
+        int maxLength = compressor.maxCompressedLength(raw.length);
+        byte[] compressed = new byte[HEADER_LENGTH + maxLength];
+        int compressedLength = compressor.compress(raw, 0, raw.length, compressed, HEADER_LENGTH, maxLength);
+        compressTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        // Không lưu bản nén nếu không nhỏ hơn bản gốc (dữ liệu ngẫu nhiên, đã nén...)
+        if (HEADER_LENGTH + compressedLength >= raw.length) {
+            skipped.increment();
+            return raw;
+        }
+
+        compressed[0] = COMPRESSED_LZ4;
+        compressed[1] = (byte) (raw.length >>> 24);
+        compressed[2] = (byte) (raw.length >>> 16);
+        compressed[3] = (byte) (raw.length >>> 8);
+        compressed[4] = (byte) raw.length;
+        compressionRatio.record((double) raw.length / compressedLength);
+        return Arrays.copyOf(compressed, HEADER_LENGTH + compressedLength);
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0 || bytes[0] != COMPRESSED_LZ4) {
+            return delegate.deserialize(bytes);
+        }
+        if (bytes.length < HEADER_LENGTH) {
+            throw new SerializationException("Truncated compressed value");
+        }
+
+        long start = System.nanoTime();
+        int originalLength = ((bytes[1] & 0xFF) << 24) | ((bytes[2] & 0xFF) << 16)
+                | ((bytes[3] & 0xFF) << 8) | (bytes[4] & 0xFF);
+        byte[] raw = new byte[originalLength];
+        try {
+            decompressor.decompress(bytes, HEADER_LENGTH, raw, 0, originalLength);
+        } catch (Exception e) {
+            throw new SerializationException("Could not decompress value", e);
+        }
+        decompressTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return delegate.deserialize(raw);
+    }
+}
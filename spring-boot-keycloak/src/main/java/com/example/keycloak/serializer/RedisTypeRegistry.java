@@ -0,0 +1,97 @@
+package com.example.keycloak.serializer;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Redis Type Registry
+ * Ánh xạ cố định giữa type id (short) và type cho binary format
+ *
+ * - Chỉ các type được đăng ký mới được ghi ở binary format, còn lại dùng JSON
+ * - Hỗ trợ class và List của một class (ví dụ một trang List<TicketDTO>)
+ * - Type id đã dùng KHÔNG được đổi hoặc tái sử dụng vì dữ liệu cũ trong Redis vẫn tham chiếu tới nó
+ */
+public class RedisTypeRegistry {
+
+    private final Map<Short, JavaType> typesById = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Short> idsByType = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Short> listIdsByElementType = new ConcurrentHashMap<>();
+
+    /**
+     * Đăng ký một class với type id
+     * @param id type id, duy nhất và không thay đổi
+     * @param type the class
+     * @return this registry
+     */
+    public RedisTypeRegistry register(int id, Class<?> type) {
+        idsByType.put(type, reserve(id, TypeFactory.defaultInstance().constructType(type)));
+        return this;
+    }
+
+    /**
+     * Đăng ký List có phần tử thuộc đúng một class với type id
+     * Đọc lại thành ArrayList
+     * @param id type id, duy nhất và không thay đổi
+     * @param elementType class của phần tử
+     * @return this registry
+     */
+    public RedisTypeRegistry registerList(int id, Class<?> elementType) {
+        listIdsByElementType.put(elementType,
+                reserve(id, TypeFactory.defaultInstance().constructCollectionType(List.class, elementType)));
+        return this;
+    }
+
+    private short reserve(int id, JavaType type) {
+        if (id < 0 || id > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Type id out of range: " + id);
+        }
+        short typeId = (short) id;
+        JavaType existing = typesById.putIfAbsent(typeId, type);
+        if (existing != null && !existing.equals(type)) {
+            throw new IllegalArgumentException(
+                    "Type id " + id + " already registered for " + existing.toCanonical());
+        }
+        return typeId;
+    }
+
+    /**
+     * List chỉ khớp khi không rỗng và mọi phần tử cùng một class đã đăng ký bằng registerList
+     * @param value the value
+     * @return type id, or null if not registered
+     */
+    public Short idOf(Object value) {
+        if (value instanceof List) {
+            return listIdOf((List<?>) value);
+        }
+        return idsByType.get(value.getClass());
+    }
+
+    private Short listIdOf(List<?> list) {
+        if (list.isEmpty() || list.get(0) == null) {
+            return null;
+        }
+        Class<?> elementType = list.get(0).getClass();
+        Short id = listIdsByElementType.get(elementType);
+        if (id == null) {
+            return null;
+        }
+        for (Object element : list) {
+            if (element == null || element.getClass() != elementType) {
+                return null;
+            }
+        }
+        return id;
+    }
+
+    /**
+     * @param id the type id
+     * @return the type, or null if not registered
+     */
+    public JavaType typeOf(short id) {
+        return typesById.get(id);
+    }
+}
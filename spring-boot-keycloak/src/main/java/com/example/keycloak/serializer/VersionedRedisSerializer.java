@@ -0,0 +1,102 @@
+package com.example.keycloak.serializer;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.IOException;
+
+/**
+ * Versioned Redis Serializer
+ * Cho phép JSON (format cũ) và binary (Smile) cùng tồn tại trong Redis khi rollout
+ *
+ * Layout:
+ * - Binary: [0x02][type id: 2 bytes][Smile payload], type id lấy từ {@link RedisTypeRegistry}
+ * - JSON: không header (byte đầu là ký tự JSON) để node chưa deploy bản mới vẫn đọc được
+ *
+ * Khi ghi ở BINARY mode, value có type chưa đăng ký vẫn được ghi bằng JSON
+ */
+public class VersionedRedisSerializer implements RedisSerializer<Object> {
+
+    public enum Format {
+        JSON,
+        BINARY
+    }
+
+    static final byte VERSION_BINARY = 0x02;
+    private static final int BINARY_HEADER_LENGTH = 3;
+
+    private final RedisSerializer<Object> jsonSerializer;
+    private final RedisTypeRegistry typeRegistry;
+    private final Format writeFormat;
+    private final ObjectMapper smileMapper;
+
+    public VersionedRedisSerializer(RedisSerializer<Object> jsonSerializer,
+                                    RedisTypeRegistry typeRegistry,
+                                    Format writeFormat) {
+        this.jsonSerializer = jsonSerializer;
+        this.typeRegistry = typeRegistry;
+        this.writeFormat = writeFormat;
+        this.smileMapper = new ObjectMapper(new SmileFactory())
+                .findAndRegisterModules()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        if (writeFormat == Format.BINARY) {
+            Short typeId = typeRegistry.idOf(value);
+            if (typeId != null) {
+                return serializeBinary(typeId, value);
+            }
+        }
+        return jsonSerializer.serialize(value);
+    }
+
+    private byte[] serializeBinary(short typeId, Object value) {
+        try {
+            byte[] payload = smileMapper.writeValueAsBytes(value);
+            byte[] bytes = new byte[BINARY_HEADER_LENGTH + payload.length];
+            bytes[0] = VERSION_BINARY;
+            bytes[1] = (byte) (typeId >> 8);
+            bytes[2] = (byte) typeId;
+            System.arraycopy(payload, 0, bytes, BINARY_HEADER_LENGTH, payload.length);
+            return bytes;
+        } catch (IOException e) {
+            throw new SerializationException("Could not write binary value: " + value.getClass().getName(), e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] == VERSION_BINARY) {
+            return deserializeBinary(bytes);
+        }
+        return jsonSerializer.deserialize(bytes);
+    }
+
+    private Object deserializeBinary(byte[] bytes) {
+        if (bytes.length < BINARY_HEADER_LENGTH) {
+            throw new SerializationException("Truncated binary value");
+        }
+        short typeId = (short) (((bytes[1] & 0xFF) << 8) | (bytes[2] & 0xFF));
+        JavaType type = typeRegistry.typeOf(typeId);
+        if (type == null) {
+            throw new SerializationException("Unknown type id in binary value: " + typeId);
+        }
+        try {
+            return smileMapper.readValue(bytes, BINARY_HEADER_LENGTH, bytes.length - BINARY_HEADER_LENGTH, type);
+        } catch (IOException e) {
+            throw new SerializationException("Could not read binary value: " + type.toCanonical(), e);
+        }
+    }
+}
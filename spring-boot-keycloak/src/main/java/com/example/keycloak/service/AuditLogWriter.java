@@ -0,0 +1,412 @@
+package com.example.keycloak.service;
+
+import com.example.keycloak.entity.AuditLog;
+import com.example.keycloak.repository.AuditLogBatchRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Audit Log Writer
+ *
+ * - Chuyển trạng thái ticket: {@link #writeInTransaction(List)} insert bằng JDBC batch trong transaction
+ *   nghiệp vụ, commit/rollback cùng thay đổi nên không thể mất khi process bị kill
+ * - Thao tác số lượng lớn (claim...): {@link #write(List)} ghi bất đồng bộ theo batch,
+ *   audit log được đưa vào buffer sau khi transaction commit (rollback thì không ghi)
+ * - Một writer thread gom tối đa audit.writer.batch-size row mỗi lần và insert bằng JDBC batch
+ *   (reWriteBatchedInserts gộp thành INSERT nhiều row)
+ * - Back-pressure: buffer đầy thì thread gọi chờ tối đa audit.writer.offer-timeout,
+ *   quá thời gian thì audit log được ghi xuống spill file (NDJSON) thay vì bị bỏ
+ * - Insert lỗi (database down...) cũng ghi batch xuống spill file, writer replay file khi rảnh
+ *   (at-least-once: crash giữa lúc replay có thể ghi trùng một batch)
+ * - Spill file mặc định nằm trong audit.writer.data-dir, nên là volume persistent (cảnh báo nếu nằm trong tmp),
+ *   dòng không đọc được khi replay được chuyển sang file .rejected để xử lý thủ công
+ * - Audit log bất đồng bộ còn trong buffer bị mất nếu process bị kill đột ngột, shutdown bình thường sẽ flush hết
+ * - Metrics: audit.writer.queue.size, audit.writer.lag (giây, tuổi của audit log cũ nhất chưa ghi),
+ *   audit.writer.flush, audit.writer.written, audit.writer.spilled, audit.writer.failures,
+ *   audit.writer.rejected
+ */
+@Slf4j
+@Component
+public class AuditLogWriter {
+
+    private final AuditLogBatchRepository auditLogBatchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TicketTimelineService ticketTimelineService;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Object spillLock = new Object();
+
+    @Value("${audit.writer.buffer-size:10000}")
+    private int bufferSize;
+
+    @Value("${audit.writer.batch-size:500}")
+    private int batchSize;
+
+    @Value("${audit.writer.flush-interval:PT0.2S}")
+    private Duration flushInterval;
+
+    @Value("${audit.writer.offer-timeout:PT0.1S}")
+    private Duration offerTimeout;
+
+    @Value("${audit.writer.retry-backoff:PT5S}")
+    private Duration retryBackoff;
+
+    @Value("${audit.writer.data-dir:data/audit}")
+    private String dataDir;
+
+    // Để trống: <data-dir>/audit-spill.ndjson
+    @Value("${audit.writer.spill-file:}")
+    private String spillFileName;
+
+    private BlockingQueue<PendingAudit> queue;
+    private Path spillFile;
+    private Path processingFile;
+    private Path offsetFile;
+    private Path rejectedFile;
+    private Thread writerThread;
+    private volatile boolean running;
+
+    private Timer flushTimer;
+    private Counter writtenCounter;
+    private Counter spilledCounter;
+    private Counter failureCounter;
+    private Counter rejectedCounter;
+
+    public AuditLogWriter(AuditLogBatchRepository auditLogBatchRepository, TransactionTemplate transactionTemplate,
+                          TicketTimelineService ticketTimelineService, ObjectMapper objectMapper,
+                          MeterRegistry meterRegistry) {
+        this.auditLogBatchRepository = auditLogBatchRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.ticketTimelineService = ticketTimelineService;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    private static final class PendingAudit {
+        private final AuditLog auditLog;
+        private final long enqueuedAtNanos;
+
+        private PendingAudit(AuditLog auditLog, long enqueuedAtNanos) {
+            this.auditLog = auditLog;
+            this.enqueuedAtNanos = enqueuedAtNanos;
+        }
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        queue = new ArrayBlockingQueue<>(bufferSize);
+        spillFile = (spillFileName.isBlank()
+                ? Paths.get(dataDir, "audit-spill.ndjson")
+                : Paths.get(spillFileName)).toAbsolutePath().normalize();
+        processingFile = spillFile.resolveSibling(spillFile.getFileName() + ".processing");
+        offsetFile = spillFile.resolveSibling(spillFile.getFileName() + ".offset");
+        rejectedFile = spillFile.resolveSibling(spillFile.getFileName() + ".rejected");
+        Files.createDirectories(spillFile.getParent());
+        if (!Files.isWritable(spillFile.getParent())) {
+            throw new IllegalStateException("Audit spill directory is not writable: " + spillFile.getParent());
+        }
+        Path tmpDir = Paths.get(System.getProperty("java.io.tmpdir")).toAbsolutePath().normalize();
+        if (spillFile.startsWith(tmpDir) || spillFile.startsWith("/tmp")) {
+            // Spill file trong tmp mất khi container bị tạo lại
+            log.warn("Audit spill file is on temporary storage, set audit.writer.data-dir to a persistent volume: {}",
+                    spillFile);
+        }
+        log.info("Audit log writer started: spillFile={}", spillFile);
+
+        meterRegistry.gaugeCollectionSize("audit.writer.queue.size", List.of(), queue);
+        Gauge.builder("audit.writer.lag", this, AuditLogWriter::lagSeconds)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        flushTimer = meterRegistry.timer("audit.writer.flush");
+        writtenCounter = meterRegistry.counter("audit.writer.written");
+        spilledCounter = meterRegistry.counter("audit.writer.spilled");
+        failureCounter = meterRegistry.counter("audit.writer.failures");
+        rejectedCounter = meterRegistry.counter("audit.writer.rejected");
+
+        running = true;
+        writerThread = new Thread(this::run, "audit-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writerThread.interrupt();
+        writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        // Flush phần còn lại trong buffer (lỗi thì ghi xuống spill file)
+        List<PendingAudit> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (int from = 0; from < remaining.size(); from += batchSize) {
+            flush(remaining.subList(from, Math.min(from + batchSize, remaining.size())));
+        }
+    }
+
+    /**
+     * Insert audit log trong transaction hiện tại (bắt buộc phải có transaction)
+     * @param auditLogs the audit logs
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void writeInTransaction(List<AuditLog> auditLogs) {
+        if (auditLogs.isEmpty()) {
+            return;
+        }
+        for (AuditLog auditLog : auditLogs) {
+            if (auditLog.getTimestamp() == null) {
+                auditLog.setTimestamp(LocalDateTime.now());
+            }
+        }
+        auditLogBatchRepository.insertAll(auditLogs);
+        writtenCounter.increment(auditLogs.size());
+        ticketTimelineService.evictAfterCommit(ticketIds(auditLogs));
+    }
+
+    /**
+     * Ghi audit log bất đồng bộ sau khi transaction hiện tại commit (ngay lập tức nếu không có transaction)
+     * @param auditLogs the audit logs (timestamp nên được gán lúc tạo để giữ đúng thứ tự thời gian)
+     */
+    public void write(List<AuditLog> auditLogs) {
+        if (auditLogs.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(auditLogs);
+                }
+            });
+        } else {
+            enqueue(auditLogs);
+        }
+    }
+
+    private void enqueue(List<AuditLog> auditLogs) {
+        long now = System.nanoTime();
+        List<AuditLog> overflow = null;
+        boolean waited = false;
+        for (AuditLog auditLog : auditLogs) {
+            if (auditLog.getTimestamp() == null) {
+                auditLog.setTimestamp(LocalDateTime.now());
+            }
+            PendingAudit pending = new PendingAudit(auditLog, now);
+            boolean accepted = queue.offer(pending);
+            if (!accepted && !waited && overflow == null) {
+                // Chỉ chờ một lần cho mỗi lời gọi, phần còn lại đi thẳng xuống spill file
+                waited = true;
+                try {
+                    accepted = queue.offer(pending, offerTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (!accepted) {
+                if (overflow == null) {
+                    overflow = new ArrayList<>();
+                }
+                overflow.add(auditLog);
+            }
+        }
+        if (overflow != null) {
+            log.warn("Audit log buffer full, spilling to file: count={}", overflow.size());
+            spill(overflow);
+        }
+    }
+
+    private void run() {
+        List<PendingAudit> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                PendingAudit first = queue.poll(flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    replaySpillFile();
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                if (!flush(batch)) {
+                    sleep(retryBackoff);
+                }
+            } catch (InterruptedException e) {
+                // Chỉ bị interrupt khi shutdown, phần còn lại được flush trong shutdown()
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                }
+                return;
+            } catch (Exception e) {
+                log.error("Unexpected error in audit log writer", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Insert một batch, lỗi thì ghi batch xuống spill file
+     * @return true nếu insert thành công
+     */
+    private boolean flush(List<PendingAudit> batch) {
+        List<AuditLog> auditLogs = batch.stream()
+                .map(pending -> pending.auditLog)
+                .collect(Collectors.toList());
+        try {
+            insert(auditLogs);
+            return true;
+        } catch (Exception e) {
+            failureCounter.increment();
+            log.error("Error writing audit logs, spilling to file: count={}", auditLogs.size(), e);
+            spill(auditLogs);
+            return false;
+        }
+    }
+
+    private void insert(List<AuditLog> auditLogs) {
+        flushTimer.record(() -> transactionTemplate.executeWithoutResult(
+                status -> auditLogBatchRepository.insertAll(auditLogs)));
+        writtenCounter.increment(auditLogs.size());
+        ticketTimelineService.evictAfterCommit(ticketIds(auditLogs));
+    }
+
+    /**
+     * Ghi audit log xuống spill file, mỗi dòng một AuditLog (JSON)
+     */
+    private void spill(List<AuditLog> auditLogs) {
+        synchronized (spillLock) {
+            try (BufferedWriter writer = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (AuditLog auditLog : auditLogs) {
+                    writer.write(objectMapper.writeValueAsString(auditLog));
+                    writer.newLine();
+                }
+                spilledCounter.increment(auditLogs.size());
+            } catch (IOException e) {
+                // Không còn chỗ nào để giữ audit log: log đầy đủ để có thể khôi phục thủ công
+                log.error("Error spilling audit logs, audit logs lost: {}", auditLogs, e);
+            }
+        }
+    }
+
+    /**
+     * Replay spill file khi writer rảnh
+     * File được đổi tên thành .processing (audit log spill mới ghi vào file mới),
+     * số dòng đã insert được lưu trong .offset để lần retry không ghi trùng,
+     * file chỉ bị xóa khi đã đọc tới cuối file
+     */
+    private void replaySpillFile() throws InterruptedException {
+        try {
+            if (!Files.exists(processingFile)) {
+                synchronized (spillLock) {
+                    if (!Files.exists(spillFile)) {
+                        return;
+                    }
+                    Files.move(spillFile, processingFile, StandardCopyOption.ATOMIC_MOVE);
+                }
+                Files.deleteIfExists(offsetFile);
+            }
+
+            long done = Files.exists(offsetFile) ? Long.parseLong(Files.readString(offsetFile).trim()) : 0;
+            long lineNumber = 0;
+            boolean endOfFile = false;
+            List<AuditLog> batch = new ArrayList<>(batchSize);
+            try (BufferedReader reader = Files.newBufferedReader(processingFile, StandardCharsets.UTF_8)) {
+                while (running) {
+                    String line = reader.readLine();
+                    if (line == null) {
+                        endOfFile = true;
+                        break;
+                    }
+                    lineNumber++;
+                    if (lineNumber <= done || line.isBlank()) {
+                        continue;
+                    }
+                    try {
+                        batch.add(objectMapper.readValue(line, AuditLog.class));
+                    } catch (JsonProcessingException e) {
+                        // Ví dụ dòng cuối bị cắt do process bị kill giữa lúc spill: không retry mãi
+                        reject(line, e);
+                    }
+                    if (batch.size() >= batchSize) {
+                        insert(batch);
+                        batch.clear();
+                        Files.writeString(offsetFile, String.valueOf(lineNumber));
+                    }
+                    if (!queue.isEmpty()) {
+                        // Ưu tiên audit log mới, phần còn lại replay ở lần rảnh tiếp theo
+                        break;
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                insert(batch);
+            }
+            if (endOfFile) {
+                Files.delete(processingFile);
+                Files.deleteIfExists(offsetFile);
+                log.info("Replayed audit spill file: lines={}", lineNumber);
+            } else if (lineNumber > done) {
+                Files.writeString(offsetFile, String.valueOf(lineNumber));
+            }
+        } catch (IOException | RuntimeException e) {
+            failureCounter.increment();
+            log.error("Error replaying audit spill file", e);
+            sleep(retryBackoff);
+        }
+    }
+
+    private void reject(String line, JsonProcessingException cause) throws IOException {
+        log.error("Undecodable audit spill line moved to {}: {}", rejectedFile, cause.getOriginalMessage());
+        Files.writeString(rejectedFile, line + System.lineSeparator(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        rejectedCounter.increment();
+    }
+
+    private double lagSeconds() {
+        PendingAudit oldest = queue.peek();
+        return oldest == null ? 0 : (System.nanoTime() - oldest.enqueuedAtNanos) / 1_000_000_000.0;
+    }
+
+    private static List<Long> ticketIds(Collection<AuditLog> auditLogs) {
+        return auditLogs.stream()
+                .filter(auditLog -> "TICKET".equals(auditLog.getEntityType()))
+                .map(auditLog -> Long.valueOf(auditLog.getEntityId()))
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    private static void sleep(Duration duration) throws InterruptedException {
+        Thread.sleep(duration.toMillis());
+    }
+}
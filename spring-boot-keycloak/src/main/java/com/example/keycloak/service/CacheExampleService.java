@@ -26,6 +26,8 @@ public class CacheExampleService {
 
     // Giả lập database
     private final Map<String, String> database = new HashMap<>();
+    // Giả lập token store: tokenId -> username
+    private final Map<String, String> tokenStore = new HashMap<>();
     
     private final RedisService redisService;
 
@@ -36,13 +38,20 @@ public class CacheExampleService {
      * Cache name: "users"
      * Cache key: userId (parameter)
      * TTL: 30 minutes (defined in RedisConfig)
+     * sync = true: khi cache miss chỉ một thread/node load từ database (chống stampede)
      */
-    @Cacheable(value = "users", key = "#userId")
+    @Cacheable(value = "users", key = "#userId", sync = true)
     public String getUserById(String userId) {
+        return loadUser(userId);
+    }
+
+    /**
+     * Đọc user từ database, không qua cache (dùng chung cho @Cacheable và early refresh)
+     */
+    public String loadUser(String userId) {
         log.info("Fetching user from database: userId={}", userId);
         // Simulate database query
-        String user = database.getOrDefault(userId, "User not found");
-        return user;
+        return database.getOrDefault(userId, "User not found");
     }
 
     /**
@@ -74,6 +83,35 @@ public class CacheExampleService {
         log.info("Clearing all users cache");
     }
 
+    /**
+     * Cache name: "tokens" (TTL 60 minutes), trả về username sở hữu token
+     */
+    @Cacheable(value = "tokens", key = "#tokenId", sync = true)
+    public String getTokenOwner(String tokenId) {
+        return loadTokenOwner(tokenId);
+    }
+
+    /**
+     * Đọc token từ token store, không qua cache (dùng chung cho @Cacheable và early refresh)
+     */
+    public String loadTokenOwner(String tokenId) {
+        log.info("Fetching token from token store: tokenId={}", tokenId);
+        return tokenStore.get(tokenId);
+    }
+
+    @CachePut(value = "tokens", key = "#tokenId")
+    public String saveToken(String tokenId, String username) {
+        log.info("Saving token: tokenId={}, username={}", tokenId, username);
+        tokenStore.put(tokenId, username);
+        return username;
+    }
+
+    @CacheEvict(value = "tokens", key = "#tokenId")
+    public void revokeToken(String tokenId) {
+        log.info("Revoking token: tokenId={}", tokenId);
+        tokenStore.remove(tokenId);
+    }
+
     /**
      * Example sử dụng RedisService trực tiếp (không dùng annotation)
      * Dùng khi cần control cache một cách chi tiết hơn
@@ -117,10 +155,11 @@ public class CacheExampleService {
 
     /**
      * Example increment counter
+     * INCR + PEXPIRE chạy atomic trong một Lua script (counter tự hết hạn sau 24h)
      */
     public Long incrementLoginCount(String userId) {
         String key = "login:count:" + userId;
-        Long count = redisService.increment(key, 1);
+        Long count = redisService.incrementWithTtl(key, 1, java.time.Duration.ofHours(24));
         log.info("Incremented login count for user: userId={}, count={}", userId, count);
         return count;
     }
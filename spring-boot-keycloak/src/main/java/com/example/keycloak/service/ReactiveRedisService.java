@@ -0,0 +1,358 @@
+package com.example.keycloak.service;
+
+import com.example.keycloak.service.redis.RedisScriptRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisElementReader;
+import org.springframework.data.redis.serializer.RedisElementWriter;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reactive Redis Service
+ * Phiên bản non-blocking của {@link RedisService} trên ReactiveRedisTemplate (Lettuce)
+ *
+ * - Các thao tác trả về Mono/Flux, không giữ thread trong lúc chờ network
+ * - Xử lý lỗi giống RedisService: log và trả về giá trị mặc định thay vì propagate lỗi
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveRedisService {
+
+    private static final int DEFAULT_SCAN_BATCH_SIZE = 500;
+
+    private final ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
+    private final RedisScriptRegistry scriptRegistry;
+
+    /**
+     * Set a value in Redis
+     * @param key the key
+     * @param value the value
+     * @return true if saved
+     */
+    public Mono<Boolean> set(String key, Object value) {
+        return reactiveRedisTemplate.opsForValue().set(key, value)
+                .doOnSuccess(ok -> log.debug("Saved to Redis: key={}", key))
+                .onErrorResume(e -> {
+                    log.error("Error saving to Redis: key={}", key, e);
+                    return Mono.just(false);
+                });
+    }
+
+    /**
+     * Set a value in Redis with expiration time
+     * @param key the key
+     * @param value the value
+     * @param timeout the timeout duration
+     * @return true if saved
+     */
+    public Mono<Boolean> set(String key, Object value, Duration timeout) {
+        return reactiveRedisTemplate.opsForValue().set(key, value, timeout)
+                .doOnSuccess(ok -> log.debug("Saved to Redis with TTL: key={}, ttl={}", key, timeout))
+                .onErrorResume(e -> {
+                    log.error("Error saving to Redis: key={}", key, e);
+                    return Mono.just(false);
+                });
+    }
+
+    /**
+     * Get a value from Redis
+     * @param key the key
+     * @return the value, or empty if not found
+     */
+    public Mono<Object> get(String key) {
+        return reactiveRedisTemplate.opsForValue().get(key)
+                .onErrorResume(e -> {
+                    log.error("Error getting from Redis: key={}", key, e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Get a value from Redis with type casting
+     * @param key the key
+     * @param clazz the class to cast to
+     * @param <T> the type
+     * @return the value, or empty if not found or of another type
+     */
+    public <T> Mono<T> get(String key, Class<T> clazz) {
+        return get(key)
+                .filter(clazz::isInstance)
+                .map(clazz::cast);
+    }
+
+    /**
+     * Get multiple values from Redis with a single MGET
+     * @param keys the keys
+     * @return map of key to value, keys not found are omitted
+     */
+    public Mono<Map<String, Object>> multiGet(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+        List<String> orderedKeys = new ArrayList<>(new LinkedHashSet<>(keys));
+        return reactiveRedisTemplate.opsForValue().multiGet(orderedKeys)
+                .map(values -> {
+                    Map<String, Object> result = new LinkedHashMap<>();
+                    for (int i = 0; i < orderedKeys.size(); i++) {
+                        if (values.get(i) != null) {
+                            result.put(orderedKeys.get(i), values.get(i));
+                        }
+                    }
+                    return result;
+                })
+                .onErrorResume(e -> {
+                    log.error("Error getting multiple keys from Redis: count={}", keys.size(), e);
+                    return Mono.just(Map.of());
+                });
+    }
+
+    /**
+     * Delete a key from Redis
+     * @param key the key
+     * @return true if deleted
+     */
+    public Mono<Boolean> delete(String key) {
+        return reactiveRedisTemplate.delete(key)
+                .map(count -> count > 0)
+                .onErrorResume(e -> {
+                    log.error("Error deleting from Redis: key={}", key, e);
+                    return Mono.just(false);
+                });
+    }
+
+    /**
+     * Delete multiple keys from Redis with UNLINK
+     * @param keys the keys to delete
+     * @return number of keys deleted
+     */
+    public Mono<Long> delete(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return Mono.just(0L);
+        }
+        return reactiveRedisTemplate.unlink(Flux.fromIterable(keys))
+                .onErrorResume(e -> {
+                    log.error("Error deleting from Redis: count={}", keys.size(), e);
+                    return Mono.just(0L);
+                });
+    }
+
+    /**
+     * Check if a key exists in Redis
+     * @param key the key
+     * @return true if exists
+     */
+    public Mono<Boolean> exists(String key) {
+        return reactiveRedisTemplate.hasKey(key)
+                .onErrorResume(e -> {
+                    log.error("Error checking existence in Redis: key={}", key, e);
+                    return Mono.just(false);
+                });
+    }
+
+    /**
+     * Set expiration time for a key
+     * @param key the key
+     * @param timeout the timeout duration
+     * @return true if successful
+     */
+    public Mono<Boolean> expire(String key, Duration timeout) {
+        return reactiveRedisTemplate.expire(key, timeout)
+                .onErrorResume(e -> {
+                    log.error("Error setting expiration: key={}", key, e);
+                    return Mono.just(false);
+                });
+    }
+
+    /**
+     * Get time to live for a key
+     * @param key the key
+     * @return TTL in seconds, or -1 if unknown
+     */
+    public Mono<Long> getTimeToLive(String key) {
+        return reactiveRedisTemplate.getExpire(key)
+                .map(Duration::getSeconds)
+                .defaultIfEmpty(-1L)
+                .onErrorResume(e -> {
+                    log.error("Error getting TTL: key={}", key, e);
+                    return Mono.just(-1L);
+                });
+    }
+
+    /**
+     * Increment a value in Redis
+     * @param key the key
+     * @param delta the increment value
+     * @return the new value
+     */
+    public Mono<Long> increment(String key, long delta) {
+        return reactiveRedisTemplate.opsForValue().increment(key, delta)
+                .onErrorResume(e -> {
+                    log.error("Error incrementing in Redis: key={}", key, e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Decrement a value in Redis
+     * @param key the key
+     * @param delta the decrement value
+     * @return the new value
+     */
+    public Mono<Long> decrement(String key, long delta) {
+        return reactiveRedisTemplate.opsForValue().decrement(key, delta)
+                .onErrorResume(e -> {
+                    log.error("Error decrementing in Redis: key={}", key, e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Increment a counter and set its expiration time atomically (Lua script)
+     * @param key the key
+     * @param delta the increment value
+     * @param timeout the timeout duration
+     * @return the new value
+     */
+    public Mono<Long> incrementWithTtl(String key, long delta, Duration timeout) {
+        RedisScript<Long> script = scriptRegistry.get(RedisScriptRegistry.COUNTER_WITH_TTL);
+        return reactiveRedisTemplate.execute(script, List.of(key),
+                        List.of(RedisService.rawArg(delta), RedisService.rawArg(timeout.toMillis())),
+                        RedisElementWriter.from(RedisSerializer.byteArray()),
+                        RedisElementReader.from(new GenericToStringSerializer<>(Long.class)))
+                .next()
+                .onErrorResume(e -> {
+                    log.error("Error incrementing with TTL in Redis: key={}", key, e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Iterate keys matching a pattern using SCAN
+     * @param pattern the pattern (e.g., "user:*")
+     * @param batchSize COUNT hint cho mỗi lần gọi SCAN
+     * @return stream of matching keys
+     */
+    public Flux<String> scan(String pattern, int batchSize) {
+        ScanOptions options = ScanOptions.scanOptions()
+                .match(pattern)
+                .count(batchSize)
+                .build();
+        return reactiveRedisTemplate.scan(options)
+                .onErrorResume(e -> {
+                    log.error("Error scanning keys from Redis: pattern={}", pattern, e);
+                    return Flux.empty();
+                });
+    }
+
+    /**
+     * Delete all keys matching a pattern (SCAN + UNLINK theo batch)
+     * @param pattern the pattern (e.g., "user:*")
+     * @return number of keys deleted
+     */
+    public Mono<Long> deleteByPattern(String pattern) {
+        return scan(pattern, DEFAULT_SCAN_BATCH_SIZE)
+                .buffer(DEFAULT_SCAN_BATCH_SIZE)
+                .concatMap(this::delete)
+                .reduce(0L, Long::sum);
+    }
+
+    /**
+     * Add value to a Set in Redis
+     * @param key the key
+     * @param values the values to add
+     * @return number of elements added
+     */
+    public Mono<Long> addToSet(String key, Object... values) {
+        return reactiveRedisTemplate.opsForSet().add(key, values)
+                .onErrorResume(e -> {
+                    log.error("Error adding to set in Redis: key={}", key, e);
+                    return Mono.just(0L);
+                });
+    }
+
+    /**
+     * Get all members of a Set in Redis
+     * @param key the key
+     * @return members of the set
+     */
+    public Flux<Object> getSetMembers(String key) {
+        return reactiveRedisTemplate.opsForSet().members(key)
+                .onErrorResume(e -> {
+                    log.error("Error getting set members from Redis: key={}", key, e);
+                    return Flux.empty();
+                });
+    }
+
+    /**
+     * Remove value from a Set in Redis
+     * @param key the key
+     * @param values the values to remove
+     * @return number of elements removed
+     */
+    public Mono<Long> removeFromSet(String key, Object... values) {
+        return reactiveRedisTemplate.opsForSet().remove(key, values)
+                .onErrorResume(e -> {
+                    log.error("Error removing from set in Redis: key={}", key, e);
+                    return Mono.just(0L);
+                });
+    }
+
+    /**
+     * Put value in a Hash in Redis
+     * @param key the key
+     * @param hashKey the hash key
+     * @param value the value
+     * @return true if saved
+     */
+    public Mono<Boolean> putHash(String key, String hashKey, Object value) {
+        return reactiveRedisTemplate.<String, Object>opsForHash().put(key, hashKey, value)
+                .onErrorResume(e -> {
+                    log.error("Error saving to Redis hash: key={}, hashKey={}", key, hashKey, e);
+                    return Mono.just(false);
+                });
+    }
+
+    /**
+     * Get value from a Hash in Redis
+     * @param key the key
+     * @param hashKey the hash key
+     * @return the value
+     */
+    public Mono<Object> getHash(String key, String hashKey) {
+        return reactiveRedisTemplate.<String, Object>opsForHash().get(key, hashKey)
+                .onErrorResume(e -> {
+                    log.error("Error getting from Redis hash: key={}, hashKey={}", key, hashKey, e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Delete hash key from Redis
+     * @param key the key
+     * @param hashKeys the hash keys to delete
+     * @return number of fields deleted
+     */
+    public Mono<Long> deleteHash(String key, Object... hashKeys) {
+        return reactiveRedisTemplate.<String, Object>opsForHash().remove(key, hashKeys)
+                .onErrorResume(e -> {
+                    log.error("Error deleting from Redis hash: key={}", key, e);
+                    return Mono.just(0L);
+                });
+    }
+}
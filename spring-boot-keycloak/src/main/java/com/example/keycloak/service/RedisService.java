@@ -1,13 +1,43 @@
 package com.example.keycloak.service;
 
+import com.example.keycloak.service.redis.RedisAutoBatcher;
+import com.example.keycloak.service.redis.RedisClientSideCache;
+import com.example.keycloak.service.redis.RedisOperationMetrics;
+import com.example.keycloak.service.redis.RedisScriptRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Redis Service
@@ -18,7 +48,44 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 public class RedisService {
 
+    private static final int DEFAULT_SCAN_BATCH_SIZE = 500;
+
     private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisScriptRegistry scriptRegistry;
+    private final RedisClientSideCache clientSideCache;
+    private final RedisOperationMetrics metrics;
+
+    // Auto-batching: gom các GET đồng thời thành một MGET
+    @Value("${redis.auto-batching.enabled:false}")
+    private boolean autoBatchingEnabled;
+
+    @Value("${redis.auto-batching.window:2ms}")
+    private Duration autoBatchingWindow;
+
+    @Value("${redis.auto-batching.max-batch-size:128}")
+    private int autoBatchingMaxBatchSize;
+
+    @Value("${redis.auto-batching.timeout:500ms}")
+    private Duration autoBatchingTimeout;
+
+    private RedisAutoBatcher autoBatcher;
+
+    @PostConstruct
+    public void init() {
+        if (autoBatchingEnabled) {
+            // MGET trực tiếp: lỗi được trả về cho từng get() (không nuốt lỗi), metrics chỉ ghi ở get()
+            autoBatcher = new RedisAutoBatcher(this::mget, autoBatchingWindow, autoBatchingMaxBatchSize);
+            log.info("Redis auto-batching enabled: window={}, maxBatchSize={}",
+                    autoBatchingWindow, autoBatchingMaxBatchSize);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (autoBatcher != null) {
+            autoBatcher.shutdown();
+        }
+    }
 
     /**
      * Set a value in Redis
@@ -27,7 +94,10 @@ public class RedisService {
      */
     public void set(String key, Object value) {
         try {
-            redisTemplate.opsForValue().set(key, value);
+            metrics.record("set", key, () -> {
+                redisTemplate.opsForValue().set(key, value);
+                return null;
+            });
             log.debug("Saved to Redis: key={}", key);
         } catch (Exception e) {
             log.error("Error saving to Redis: key={}", key, e);
@@ -42,7 +112,10 @@ public class RedisService {
      */
     public void set(String key, Object value, Duration timeout) {
         try {
-            redisTemplate.opsForValue().set(key, value, timeout);
+            metrics.record("set", key, () -> {
+                redisTemplate.opsForValue().set(key, value, timeout);
+                return null;
+            });
             log.debug("Saved to Redis with TTL: key={}, ttl={}", key, timeout);
         } catch (Exception e) {
             log.error("Error saving to Redis: key={}", key, e);
@@ -56,7 +129,7 @@ public class RedisService {
      */
     public Object get(String key) {
         try {
-            Object value = redisTemplate.opsForValue().get(key);
+            Object value = metrics.record("get", key, () -> readValue(key));
             log.debug("Retrieved from Redis: key={}, found={}", key, value != null);
             return value;
         } catch (Exception e) {
@@ -75,7 +148,7 @@ public class RedisService {
     @SuppressWarnings("unchecked")
     public <T> T get(String key, Class<T> clazz) {
         try {
-            Object value = redisTemplate.opsForValue().get(key);
+            Object value = metrics.record("get", key, () -> readValue(key));
             if (value != null && clazz.isInstance(value)) {
                 return (T) value;
             }
@@ -86,6 +159,134 @@ public class RedisService {
         }
     }
 
+    private Object readValue(String key) throws Exception {
+        // Key có prefix được tracking: đọc từ cache local, Redis push invalidation khi key thay đổi
+        if (clientSideCache.isTracked(key)) {
+            return clientSideCache.get(key);
+        }
+        if (autoBatcher != null) {
+            return autoBatcher.get(key).get(autoBatchingTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        return redisTemplate.opsForValue().get(key);
+    }
+
+    /**
+     * Get multiple values from Redis with a single MGET
+     * @param keys the keys
+     * @return map of key to value, keys not found are omitted
+     */
+    public Map<String, Object> multiGet(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return Map.of();
+        }
+        try {
+            List<String> orderedKeys = new ArrayList<>(new LinkedHashSet<>(keys));
+            Map<String, Object> result = metrics.record("multiGet", orderedKeys.get(0), () -> mget(orderedKeys));
+            log.debug("Retrieved from Redis (MGET): requested={}, found={}", orderedKeys.size(), result.size());
+            return result;
+        } catch (Exception e) {
+            log.error("Error getting multiple keys from Redis: count={}", keys.size(), e);
+            return Map.of();
+        }
+    }
+
+    /**
+     * MGET không ghi metrics và không bắt lỗi (dùng cho multiGet và auto-batching)
+     * @param orderedKeys keys không trùng
+     * @return map of key to value, keys not found are omitted
+     */
+    private Map<String, Object> mget(List<String> orderedKeys) {
+        List<Object> values = redisTemplate.opsForValue().multiGet(orderedKeys);
+        Map<String, Object> result = new LinkedHashMap<>();
+        if (values != null) {
+            for (int i = 0; i < orderedKeys.size(); i++) {
+                if (values.get(i) != null) {
+                    result.put(orderedKeys.get(i), values.get(i));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Set multiple values in Redis with a single MSET
+     * @param values map of key to value
+     */
+    public void multiSet(Map<String, Object> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+        try {
+            metrics.record("multiSet", values.keySet().iterator().next(), () -> {
+                redisTemplate.opsForValue().multiSet(values);
+                return null;
+            });
+            log.debug("Saved to Redis (MSET): count={}", values.size());
+        } catch (Exception e) {
+            log.error("Error saving multiple keys to Redis: count={}", values.size(), e);
+        }
+    }
+
+    /**
+     * Set multiple values in Redis with the same expiration time
+     * @param values map of key to value
+     * @param timeout the timeout duration
+     */
+    public void multiSet(Map<String, Object> values, Duration timeout) {
+        Map<String, Duration> timeouts = new HashMap<>();
+        values.keySet().forEach(key -> timeouts.put(key, timeout));
+        multiSet(values, timeouts);
+    }
+
+    /**
+     * Set multiple values in Redis with per-key expiration time
+     * Tất cả lệnh SET ... PX được gửi trong một pipeline
+     * @param values map of key to value
+     * @param timeouts map of key to TTL, keys không có TTL sẽ không hết hạn
+     */
+    public void multiSet(Map<String, Object> values, Map<String, Duration> timeouts) {
+        if (values.isEmpty()) {
+            return;
+        }
+        try {
+            RedisSerializer<Object> valueSerializer = valueSerializer();
+            metrics.record("multiSet", values.keySet().iterator().next(), () ->
+                    redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                        values.forEach((key, value) -> {
+                            Duration timeout = timeouts.get(key);
+                            Expiration expiration = timeout != null
+                                    ? Expiration.from(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                                    : Expiration.persistent();
+                            connection.set(rawKey(key), valueSerializer.serialize(value), expiration,
+                                    RedisStringCommands.SetOption.upsert());
+                        });
+                        return null;
+                    }));
+            log.debug("Saved to Redis (pipelined SET): count={}", values.size());
+        } catch (Exception e) {
+            log.error("Error saving multiple keys to Redis: count={}", values.size(), e);
+        }
+    }
+
+    /**
+     * Delete multiple keys from Redis with a single UNLINK
+     * @param keys the keys to delete
+     * @return number of keys deleted
+     */
+    public long multiDelete(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        try {
+            Long result = metrics.record("multiDelete", keys.iterator().next(), () -> redisTemplate.unlink(keys));
+            log.debug("Deleted from Redis (UNLINK): count={}", result);
+            return result != null ? result : 0;
+        } catch (Exception e) {
+            log.error("Error deleting multiple keys from Redis: count={}", keys.size(), e);
+            return 0;
+        }
+    }
+
     /**
      * Delete a key from Redis
      * @param key the key
@@ -93,7 +294,7 @@ public class RedisService {
      */
     public boolean delete(String key) {
         try {
-            Boolean result = redisTemplate.delete(key);
+            Boolean result = metrics.record("delete", key, () -> redisTemplate.delete(key));
             log.debug("Deleted from Redis: key={}, success={}", key, result);
             return Boolean.TRUE.equals(result);
         } catch (Exception e) {
@@ -109,7 +310,8 @@ public class RedisService {
      */
     public long delete(Set<String> keys) {
         try {
-            Long result = redisTemplate.delete(keys);
+            Long result = metrics.record("delete", keys.isEmpty() ? null : keys.iterator().next(),
+                    () -> redisTemplate.delete(keys));
             log.debug("Deleted from Redis: count={}", result);
             return result != null ? result : 0;
         } catch (Exception e) {
@@ -125,7 +327,7 @@ public class RedisService {
      */
     public boolean exists(String key) {
         try {
-            Boolean result = redisTemplate.hasKey(key);
+            Boolean result = metrics.record("exists", key, () -> redisTemplate.hasKey(key));
             return Boolean.TRUE.equals(result);
         } catch (Exception e) {
             log.error("Error checking existence in Redis: key={}", key, e);
@@ -141,7 +343,7 @@ public class RedisService {
      */
     public boolean expire(String key, Duration timeout) {
         try {
-            Boolean result = redisTemplate.expire(key, timeout);
+            Boolean result = metrics.record("expire", key, () -> redisTemplate.expire(key, timeout));
             log.debug("Set expiration for key: key={}, ttl={}", key, timeout);
             return Boolean.TRUE.equals(result);
         } catch (Exception e) {
@@ -157,7 +359,7 @@ public class RedisService {
      */
     public long getTimeToLive(String key) {
         try {
-            Long ttl = redisTemplate.getExpire(key, TimeUnit.SECONDS);
+            Long ttl = metrics.record("ttl", key, () -> redisTemplate.getExpire(key, TimeUnit.SECONDS));
             return ttl != null ? ttl : -1;
         } catch (Exception e) {
             log.error("Error getting TTL: key={}", key, e);
@@ -173,7 +375,7 @@ public class RedisService {
      */
     public Long increment(String key, long delta) {
         try {
-            return redisTemplate.opsForValue().increment(key, delta);
+            return metrics.record("increment", key, () -> redisTemplate.opsForValue().increment(key, delta));
         } catch (Exception e) {
             log.error("Error incrementing in Redis: key={}", key, e);
             return null;
@@ -188,27 +390,197 @@ public class RedisService {
      */
     public Long decrement(String key, long delta) {
         try {
-            return redisTemplate.opsForValue().decrement(key, delta);
+            return metrics.record("decrement", key, () -> redisTemplate.opsForValue().decrement(key, delta));
         } catch (Exception e) {
             log.error("Error decrementing in Redis: key={}", key, e);
             return null;
         }
     }
 
+    /**
+     * Increment a counter and set its expiration time atomically (Lua script)
+     * TTL chỉ được đặt khi counter mới được tạo, các lần tăng sau không gia hạn
+     * @param key the key
+     * @param delta the increment value
+     * @param timeout the timeout duration
+     * @return the new value
+     */
+    public Long incrementWithTtl(String key, long delta, Duration timeout) {
+        try {
+            return metrics.record("incrementWithTtl", key, () -> executeScript(RedisScriptRegistry.COUNTER_WITH_TTL, key,
+                    rawArg(delta), rawArg(timeout.toMillis())));
+        } catch (Exception e) {
+            log.error("Error incrementing with TTL in Redis: key={}", key, e);
+            return null;
+        }
+    }
+
+    /**
+     * Set a new value only if the current value equals the expected one (Lua script)
+     * @param key the key
+     * @param expected giá trị mong đợi, null nghĩa là key chưa tồn tại
+     * @param newValue the new value
+     * @param timeout the timeout duration, null nếu không hết hạn
+     * @return true if the value was set
+     */
+    public boolean compareAndSet(String key, Object expected, Object newValue, Duration timeout) {
+        try {
+            RedisSerializer<Object> valueSerializer = valueSerializer();
+            byte[] expectedBytes = expected != null ? valueSerializer.serialize(expected) : new byte[0];
+            Long result = metrics.record("compareAndSet", key, () -> executeScript(RedisScriptRegistry.COMPARE_AND_SET, key,
+                    expectedBytes, valueSerializer.serialize(newValue),
+                    rawArg(timeout != null ? timeout.toMillis() : 0)));
+            return Long.valueOf(1).equals(result);
+        } catch (Exception e) {
+            log.error("Error compare-and-set in Redis: key={}", key, e);
+            return false;
+        }
+    }
+
+    /**
+     * Record a request in a sliding window and return the count (Lua script)
+     * Request chỉ được ghi nhận khi chưa vượt limit, thời gian lấy từ Redis (TIME) nên đồng nhất giữa các node
+     * @param key the key
+     * @param window độ dài window
+     * @param limit số request tối đa trong window
+     * @return số request trong window tính cả request này (lớn hơn limit nghĩa là bị từ chối),
+     *         hoặc -1 nếu có lỗi
+     */
+    public long slidingWindowCount(String key, Duration window, long limit) {
+        try {
+            Long count = metrics.record("slidingWindowCount", key, () -> executeScript(RedisScriptRegistry.SLIDING_WINDOW_COUNT, key,
+                    rawArg(window.toMillis()), rawArg(UUID.randomUUID().toString()), rawArg(limit)));
+            return count != null ? count : -1;
+        } catch (Exception e) {
+            log.error("Error counting sliding window in Redis: key={}", key, e);
+            return -1;
+        }
+    }
+
+    /**
+     * Push a value to the head of a List and trim it to a maximum length (Lua script)
+     * @param key the key
+     * @param value the value
+     * @param maxLength số phần tử tối đa giữ lại
+     * @param timeout the timeout duration, null nếu không hết hạn
+     * @return list length after trimming
+     */
+    public long pushBounded(String key, Object value, int maxLength, Duration timeout) {
+        try {
+            Long length = metrics.record("pushBounded", key, () -> executeScript(RedisScriptRegistry.BOUNDED_LIST_PUSH, key,
+                    valueSerializer().serialize(value), rawArg(maxLength),
+                    rawArg(timeout != null ? timeout.toMillis() : 0)));
+            return length != null ? length : 0;
+        } catch (Exception e) {
+            log.error("Error pushing to bounded list in Redis: key={}", key, e);
+            return 0;
+        }
+    }
+
+    /**
+     * Execute a registered Lua script by name (EVALSHA)
+     * @param scriptName tên script trong {@link RedisScriptRegistry}
+     * @param keys the keys
+     * @param args các tham số đã serialize (dùng {@link #rawArg(Object)} cho số và chuỗi)
+     * @return script result
+     */
+    public Long executeScript(String scriptName, List<String> keys, byte[]... args) {
+        RedisScript<Long> script = scriptRegistry.get(scriptName);
+        return redisTemplate.execute(script, RedisSerializer.byteArray(),
+                new GenericToStringSerializer<>(Long.class), keys, (Object[]) args);
+    }
+
+    private Long executeScript(String scriptName, String key, byte[]... args) {
+        return executeScript(scriptName, List.of(key), args);
+    }
+
+    /**
+     * Serialize số/chuỗi thành tham số của Lua script (dạng chuỗi UTF-8)
+     */
+    public static byte[] rawArg(Object value) {
+        return StringRedisSerializer.UTF_8.serialize(String.valueOf(value));
+    }
+
     /**
      * Get all keys matching a pattern
+     * Dùng SCAN thay vì KEYS để không block Redis server trong lúc duyệt keyspace
      * @param pattern the pattern (e.g., "user:*")
      * @return set of matching keys
      */
     public Set<String> keys(String pattern) {
         try {
-            return redisTemplate.keys(pattern);
+            return metrics.record("keys", pattern, () -> {
+                try (Stream<String> keys = scan(pattern, DEFAULT_SCAN_BATCH_SIZE)) {
+                    return keys.collect(Collectors.toSet());
+                }
+            });
         } catch (Exception e) {
             log.error("Error getting keys from Redis: pattern={}", pattern, e);
             return Set.of();
         }
     }
 
+    /**
+     * Iterate keys matching a pattern using SCAN
+     * Stream được đọc lazy theo từng batch từ cursor, caller phải close stream
+     * (try-with-resources) để trả connection về pool
+     * @param pattern the pattern (e.g., "user:*")
+     * @param batchSize COUNT hint cho mỗi lần gọi SCAN
+     * @return lazily consumed stream of matching keys
+     */
+    public Stream<String> scan(String pattern, int batchSize) {
+        ScanOptions options = ScanOptions.scanOptions()
+                .match(pattern)
+                .count(batchSize)
+                .build();
+        Cursor<String> cursor = redisTemplate.scan(options);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.NONNULL), false)
+                .onClose(cursor::close);
+    }
+
+    /**
+     * Delete all keys matching a pattern
+     * Keys được lấy bằng SCAN và xóa bằng UNLINK (giải phóng bộ nhớ ở background thread của Redis),
+     * mỗi batch được gửi trong một pipeline
+     * @param pattern the pattern (e.g., "user:*")
+     * @param batchSize number of keys per SCAN call and per UNLINK pipeline
+     * @return number of keys deleted
+     */
+    public long deleteByPattern(String pattern, int batchSize) {
+        long deleted = 0;
+        try (Stream<String> keys = scan(pattern, batchSize)) {
+            Iterator<String> iterator = keys.iterator();
+            List<String> batch = new ArrayList<>(batchSize);
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() >= batchSize) {
+                    deleted += metrics.record("unlink", pattern, () -> unlink(batch));
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                deleted += metrics.record("unlink", pattern, () -> unlink(batch));
+            }
+            log.debug("Deleted from Redis by pattern: pattern={}, count={}", pattern, deleted);
+        } catch (Exception e) {
+            log.error("Error deleting by pattern from Redis: pattern={}", pattern, e);
+        }
+        return deleted;
+    }
+
+    private long unlink(List<String> keys) {
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String key : keys) {
+                connection.unlink(rawKey(key));
+            }
+            return null;
+        });
+        return results.stream()
+                .filter(Long.class::isInstance)
+                .mapToLong(Long.class::cast)
+                .sum();
+    }
+
     /**
      * Add value to a Set in Redis
      * @param key the key
@@ -217,7 +589,7 @@ public class RedisService {
      */
     public Long addToSet(String key, Object... values) {
         try {
-            return redisTemplate.opsForSet().add(key, values);
+            return metrics.record("addToSet", key, () -> redisTemplate.opsForSet().add(key, values));
         } catch (Exception e) {
             log.error("Error adding to set in Redis: key={}", key, e);
             return 0L;
@@ -231,7 +603,7 @@ public class RedisService {
      */
     public Set<Object> getSetMembers(String key) {
         try {
-            return redisTemplate.opsForSet().members(key);
+            return metrics.record("getSetMembers", key, () -> redisTemplate.opsForSet().members(key));
         } catch (Exception e) {
             log.error("Error getting set members from Redis: key={}", key, e);
             return Set.of();
@@ -246,13 +618,85 @@ public class RedisService {
      */
     public Long removeFromSet(String key, Object... values) {
         try {
-            return redisTemplate.opsForSet().remove(key, values);
+            return metrics.record("removeFromSet", key, () -> redisTemplate.opsForSet().remove(key, values));
         } catch (Exception e) {
             log.error("Error removing from set in Redis: key={}", key, e);
             return 0L;
         }
     }
 
+    /**
+     * Add values to multiple Sets in Redis in a single pipeline
+     * @param values map of set key to values to add
+     * @return map of set key to number of elements added
+     */
+    public Map<String, Long> addToSets(Map<String, ? extends Collection<?>> values) {
+        if (values.isEmpty()) {
+            return Map.of();
+        }
+        try {
+            RedisSerializer<Object> valueSerializer = valueSerializer();
+            List<String> keys = new ArrayList<>(values.keySet());
+            List<Object> results = metrics.record("addToSets", keys.get(0), () ->
+                    redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                        for (String key : keys) {
+                            byte[][] members = values.get(key).stream()
+                                    .map(valueSerializer::serialize)
+                                    .toArray(byte[][]::new);
+                            connection.sAdd(rawKey(key), members);
+                        }
+                        return null;
+                    }, null));
+            Map<String, Long> result = new LinkedHashMap<>();
+            for (int i = 0; i < keys.size(); i++) {
+                Object added = results.get(i);
+                result.put(keys.get(i), added instanceof Long ? (Long) added : 0L);
+            }
+            return result;
+        } catch (Exception e) {
+            log.error("Error adding to multiple sets in Redis: count={}", values.size(), e);
+            return Map.of();
+        }
+    }
+
+    /**
+     * Get all members of multiple Sets in Redis in a single pipeline
+     * @param keys the set keys
+     * @return map of set key to members
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Set<Object>> getSetsMembers(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return Map.of();
+        }
+        try {
+            RedisSerializer<Object> valueSerializer = valueSerializer();
+            List<String> orderedKeys = new ArrayList<>(new LinkedHashSet<>(keys));
+            List<Object> results = metrics.record("getSetsMembers", orderedKeys.get(0), () ->
+                    redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                        for (String key : orderedKeys) {
+                            connection.sMembers(rawKey(key));
+                        }
+                        return null;
+                    }, null));
+            Map<String, Set<Object>> result = new LinkedHashMap<>();
+            for (int i = 0; i < orderedKeys.size(); i++) {
+                Set<Object> members = new LinkedHashSet<>();
+                Object raw = results.get(i);
+                if (raw instanceof Collection) {
+                    for (Object member : (Collection<Object>) raw) {
+                        members.add(member instanceof byte[] ? valueSerializer.deserialize((byte[]) member) : member);
+                    }
+                }
+                result.put(orderedKeys.get(i), members);
+            }
+            return result;
+        } catch (Exception e) {
+            log.error("Error getting members of multiple sets from Redis: count={}", keys.size(), e);
+            return Map.of();
+        }
+    }
+
     /**
      * Put value in a Hash in Redis
      * @param key the key
@@ -261,7 +705,10 @@ public class RedisService {
      */
     public void putHash(String key, String hashKey, Object value) {
         try {
-            redisTemplate.opsForHash().put(key, hashKey, value);
+            metrics.record("putHash", key, () -> {
+                redisTemplate.opsForHash().put(key, hashKey, value);
+                return null;
+            });
             log.debug("Saved to Redis hash: key={}, hashKey={}", key, hashKey);
         } catch (Exception e) {
             log.error("Error saving to Redis hash: key={}, hashKey={}", key, hashKey, e);
@@ -276,7 +723,7 @@ public class RedisService {
      */
     public Object getHash(String key, String hashKey) {
         try {
-            return redisTemplate.opsForHash().get(key, hashKey);
+            return metrics.record("getHash", key, () -> redisTemplate.opsForHash().get(key, hashKey));
         } catch (Exception e) {
             log.error("Error getting from Redis hash: key={}, hashKey={}", key, hashKey, e);
             return null;
@@ -291,11 +738,98 @@ public class RedisService {
      */
     public Long deleteHash(String key, Object... hashKeys) {
         try {
-            return redisTemplate.opsForHash().delete(key, hashKeys);
+            return metrics.record("deleteHash", key, () -> redisTemplate.opsForHash().delete(key, hashKeys));
         } catch (Exception e) {
             log.error("Error deleting from Redis hash: key={}", key, e);
             return 0L;
         }
     }
+
+    /**
+     * Put multiple fields in a Hash in Redis with a single HSET
+     * @param key the key
+     * @param entries map of hash key to value
+     */
+    public void putAllHash(String key, Map<String, ?> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        try {
+            metrics.record("putAllHash", key, () -> {
+                redisTemplate.opsForHash().putAll(key, entries);
+                return null;
+            });
+            log.debug("Saved to Redis hash: key={}, fields={}", key, entries.size());
+        } catch (Exception e) {
+            log.error("Error saving to Redis hash: key={}, fields={}", key, entries.size(), e);
+        }
+    }
+
+    /**
+     * Get multiple fields from a Hash in Redis with a single HMGET
+     * @param key the key
+     * @param hashKeys the hash keys
+     * @return map of hash key to value, fields not found are omitted
+     */
+    public Map<String, Object> multiGetHash(String key, Collection<String> hashKeys) {
+        if (hashKeys.isEmpty()) {
+            return Map.of();
+        }
+        try {
+            List<Object> orderedHashKeys = new ArrayList<>(new LinkedHashSet<>(hashKeys));
+            List<Object> values = metrics.record("multiGetHash", key,
+                    () -> redisTemplate.opsForHash().multiGet(key, orderedHashKeys));
+            Map<String, Object> result = new LinkedHashMap<>();
+            for (int i = 0; i < orderedHashKeys.size(); i++) {
+                if (values.get(i) != null) {
+                    result.put((String) orderedHashKeys.get(i), values.get(i));
+                }
+            }
+            return result;
+        } catch (Exception e) {
+            log.error("Error getting from Redis hash: key={}, fields={}", key, hashKeys.size(), e);
+            return Map.of();
+        }
+    }
+
+    /**
+     * Get all fields of multiple Hashes in Redis in a single pipeline
+     * @param keys the hash keys
+     * @return map of key to hash entries
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Map<String, Object>> getAllHashes(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return Map.of();
+        }
+        try {
+            List<String> orderedKeys = new ArrayList<>(new LinkedHashSet<>(keys));
+            // Pipeline deserialize kết quả hGetAll bằng hash key/value serializers của template (String -> Object)
+            List<Object> results = metrics.record("getAllHashes", orderedKeys.get(0), () ->
+                    redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                        for (String key : orderedKeys) {
+                            connection.hGetAll(rawKey(key));
+                        }
+                        return null;
+                    }));
+            Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+            for (int i = 0; i < orderedKeys.size(); i++) {
+                result.put(orderedKeys.get(i), new LinkedHashMap<>((Map<String, Object>) results.get(i)));
+            }
+            return result;
+        } catch (Exception e) {
+            log.error("Error getting multiple hashes from Redis: count={}", keys.size(), e);
+            return Map.of();
+        }
+    }
+
+    private byte[] rawKey(String key) {
+        return StringRedisSerializer.UTF_8.serialize(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    private RedisSerializer<Object> valueSerializer() {
+        return (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+    }
 }
 
@@ -0,0 +1,272 @@
+package com.example.keycloak.service;
+
+import com.example.keycloak.dto.TicketEvent;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ticket Event Service
+ * Đẩy ticket event tới các client đang mở GET /api/tickets/events (Server-Sent Events)
+ *
+ * - Event chỉ được phát sau khi transaction commit, qua Redis channel (ticket.events.channel)
+ *   để client kết nối vào bất kỳ node nào cũng nhận được; mỗi node gửi tới subscriber local của mình
+ * - Admin/checker nhận event của mọi ticket, maker chỉ nhận event ticket của mình
+ * - Mỗi subscriber có buffer giới hạn (ticket.events.buffer-size), được gửi bởi dispatch thread
+ *   nên thread commit không bao giờ bị chặn bởi client chậm
+ * - Buffer đầy: subscriber bị ngắt kết nối, client reconnect rồi đọc lại danh sách
+ * - Redis lỗi: event chỉ tới được client của node hiện tại, client khác đọc lại khi reconnect
+ */
+@Slf4j
+@Service
+public class TicketEventService implements MessageListener {
+
+    private static final String EVENT_NAME = "ticket";
+    // Heartbeat đi qua cùng buffer với event vì SseEmitter không cho gửi đồng thời từ nhiều thread
+    private static final TicketEvent HEARTBEAT = new TicketEvent();
+    private static final TypeReference<List<TicketEvent>> EVENT_LIST = new TypeReference<>() {
+    };
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService dispatchExecutor;
+    private final Counter droppedSubscribers;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    @Value("${ticket.events.channel:ticket:events}")
+    private String channel;
+
+    @Value("${ticket.events.buffer-size:256}")
+    private int bufferSize;
+
+    @Value("${ticket.events.timeout:PT30M}")
+    private Duration timeout;
+
+    public TicketEventService(MeterRegistry meterRegistry,
+                              StringRedisTemplate stringRedisTemplate,
+                              ObjectMapper objectMapper,
+                              // Spring Session cũng tạo một RedisMessageListenerContainer
+                              @Qualifier("cacheInvalidationListenerContainer")
+                              RedisMessageListenerContainer listenerContainer,
+                              @Value("${ticket.events.dispatch-threads:2}") int dispatchThreads) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.objectMapper = objectMapper;
+        this.listenerContainer = listenerContainer;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.dispatchExecutor = Executors.newFixedThreadPool(dispatchThreads, r -> {
+            Thread thread = new Thread(r, "ticket-events-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        meterRegistry.gaugeCollectionSize("ticket.events.subscribers", List.of(), subscribers);
+        this.droppedSubscribers = meterRegistry.counter("ticket.events.dropped");
+    }
+
+    @PostConstruct
+    public void listen() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(channel));
+    }
+
+    /**
+     * Mở stream mới cho user hiện tại
+     * @param username the username
+     * @param allTickets true với admin/checker (nhận event của mọi ticket)
+     * @return the emitter
+     */
+    public SseEmitter subscribe(String username, boolean allTickets) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter, username, allTickets);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+        subscribers.add(subscriber);
+        // Gửi ngay một comment để response header được flush và client biết stream đã mở
+        subscriber.offer(HEARTBEAT);
+        log.debug("Ticket event subscriber added: user={}, subscribers={}", username, subscribers.size());
+        return emitter;
+    }
+
+    /**
+     * Phát event sau khi transaction hiện tại commit (phát ngay nếu không có transaction)
+     * @param events the events
+     */
+    public void publish(List<TicketEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    broadcast(events);
+                }
+            });
+        } else {
+            broadcast(events);
+        }
+    }
+
+    /**
+     * Nhận event từ Redis channel (kể cả event do chính node này publish) và gửi tới subscriber local
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            dispatch(objectMapper.readValue(message.getBody(), EVENT_LIST));
+        } catch (Exception e) {
+            log.error("Error reading ticket event message", e);
+        }
+    }
+
+    /**
+     * Giữ kết nối qua proxy/load balancer và phát hiện client đã ngắt
+     */
+    @Scheduled(fixedDelayString = "${ticket.events.heartbeat-interval:PT30S}")
+    public void heartbeat() {
+        subscribers.forEach(subscriber -> subscriber.offer(HEARTBEAT));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatchExecutor.shutdownNow();
+        subscribers.forEach(Subscriber::close);
+    }
+
+    private void broadcast(List<TicketEvent> events) {
+        try {
+            stringRedisTemplate.convertAndSend(channel, objectMapper.writeValueAsString(events));
+        } catch (Exception e) {
+            log.error("Error publishing ticket events, delivering locally only: count={}", events.size(), e);
+            dispatch(events);
+        }
+    }
+
+    private void dispatch(List<TicketEvent> events) {
+        for (Subscriber subscriber : subscribers) {
+            for (TicketEvent event : events) {
+                if (subscriber.accepts(event)) {
+                    subscriber.offer(event);
+                }
+            }
+        }
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final String username;
+        private final boolean allTickets;
+        private final BlockingQueue<TicketEvent> queue;
+        // Chỉ một dispatch task cho mỗi subscriber tại một thời điểm
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean overflowed;
+        private volatile boolean closed;
+
+        private Subscriber(SseEmitter emitter, String username, boolean allTickets) {
+            this.emitter = emitter;
+            this.username = username;
+            this.allTickets = allTickets;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        private boolean accepts(TicketEvent event) {
+            return allTickets || username.equals(event.getMaker());
+        }
+
+        private void offer(TicketEvent event) {
+            if (closed) {
+                return;
+            }
+            if (!queue.offer(event)) {
+                // Không complete ở đây: dispatch thread có thể đang bị chặn khi ghi cho client này
+                overflowed = true;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (!draining.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                dispatchExecutor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // Đang shutdown
+                draining.set(false);
+            }
+        }
+
+        private void drain() {
+            try {
+                TicketEvent event;
+                while (!closed && !overflowed && (event = queue.poll()) != null) {
+                    send(event);
+                }
+                if (overflowed && !closed) {
+                    droppedSubscribers.increment();
+                    log.warn("Dropping slow ticket event subscriber: user={}, bufferSize={}", username, bufferSize);
+                    close();
+                }
+            } catch (Exception e) {
+                // Client đã ngắt kết nối
+                log.debug("Error sending ticket event: user={}, error={}", username, e.getMessage());
+                close();
+            } finally {
+                draining.set(false);
+            }
+            if (!closed && (overflowed || !queue.isEmpty())) {
+                schedule();
+            }
+        }
+
+        private void send(TicketEvent event) throws Exception {
+            if (event == HEARTBEAT) {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+                return;
+            }
+            emitter.send(SseEmitter.event()
+                    .name(EVENT_NAME)
+                    .data(event, MediaType.APPLICATION_JSON));
+        }
+
+        private void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            subscribers.remove(this);
+            queue.clear();
+            emitter.complete();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.keycloak.service;
+
+import com.example.keycloak.dto.TicketFileFormat;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * Ticket Export Service
+ * Export ticket dạng NDJSON hoặc CSV theo stream
+ *
+ * - Đọc bằng JDBC cursor forward-only (autocommit off + fetch size) nên PostgreSQL trả về từng nhóm row
+ *   thay vì toàn bộ result set
+ * - Mỗi row được ghi ra response ngay khi đọc, bộ nhớ không tăng theo số ticket
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TicketExportService {
+
+    private static final String SELECT_SQL = "SELECT id, title, description, status, amount, maker_username, " +
+            "checker_username, rejection_reason, created_at, updated_at FROM tickets";
+    private static final String[] CSV_HEADER = {"id", "title", "description", "status", "amount", "maker",
+            "checker", "rejectionReason", "createdAt", "updatedAt"};
+    // Flush định kỳ để client nhận dữ liệu đều đặn
+    private static final int FLUSH_EVERY_ROWS = 1000;
+
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper;
+
+    @Value("${ticket.export.fetch-size:1000}")
+    private int fetchSize;
+
+    /**
+     * @param out response output stream
+     * @param format NDJSON hoặc CSV
+     * @param maker chỉ export ticket của maker này, null để export tất cả
+     * @return số ticket đã export
+     */
+    public long exportTickets(OutputStream out, TicketFileFormat format, String maker) throws IOException {
+        String sql = SELECT_SQL + (maker != null ? " WHERE maker_username = ?" : "") + " ORDER BY id";
+        try (Connection connection = dataSource.getConnection()) {
+            // PostgreSQL chỉ dùng cursor khi autocommit tắt và fetch size > 0
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            try (PreparedStatement statement = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(fetchSize);
+                if (maker != null) {
+                    statement.setString(1, maker);
+                }
+                long count;
+                try (ResultSet rs = statement.executeQuery()) {
+                    count = format == TicketFileFormat.CSV ? writeCsv(rs, out) : writeNdjson(rs, out);
+                }
+                connection.commit();
+                log.info("Exported tickets: format={}, maker={}, count={}", format, maker, count);
+                return count;
+            } finally {
+                connection.setReadOnly(false);
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            log.error("Error exporting tickets: format={}, maker={}", format, maker, e);
+            throw new IOException("Ticket export failed", e);
+        }
+    }
+
+    private long writeNdjson(ResultSet rs, OutputStream out) throws SQLException, IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        // Không đóng response stream khi đóng generator
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        long count = 0;
+        while (rs.next()) {
+            generator.writeStartObject();
+            generator.writeNumberField("id", rs.getLong("id"));
+            generator.writeStringField("title", rs.getString("title"));
+            generator.writeStringField("description", rs.getString("description"));
+            generator.writeStringField("status", rs.getString("status"));
+            BigDecimal amount = rs.getBigDecimal("amount");
+            if (amount != null) {
+                generator.writeNumberField("amount", amount);
+            } else {
+                generator.writeNullField("amount");
+            }
+            generator.writeStringField("maker", rs.getString("maker_username"));
+            generator.writeStringField("checker", rs.getString("checker_username"));
+            generator.writeStringField("rejectionReason", rs.getString("rejection_reason"));
+            generator.writeStringField("createdAt", timestamp(rs.getTimestamp("created_at")));
+            generator.writeStringField("updatedAt", timestamp(rs.getTimestamp("updated_at")));
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+            if (++count == 1 || count % FLUSH_EVERY_ROWS == 0) {
+                generator.flush();
+            }
+        }
+        generator.close();
+        return count;
+    }
+
+    private long writeCsv(ResultSet rs, OutputStream out) throws SQLException, IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writeCsvRow(writer, CSV_HEADER);
+        long count = 0;
+        while (rs.next()) {
+            BigDecimal amount = rs.getBigDecimal("amount");
+            writeCsvRow(writer, new String[]{
+                    String.valueOf(rs.getLong("id")),
+                    rs.getString("title"),
+                    rs.getString("description"),
+                    rs.getString("status"),
+                    amount != null ? amount.toPlainString() : null,
+                    rs.getString("maker_username"),
+                    rs.getString("checker_username"),
+                    rs.getString("rejection_reason"),
+                    timestamp(rs.getTimestamp("created_at")),
+                    timestamp(rs.getTimestamp("updated_at"))
+            });
+            if (++count == 1 || count % FLUSH_EVERY_ROWS == 0) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+        return count;
+    }
+
+    private static void writeCsvRow(Writer writer, String[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(csvField(values[i]));
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * Đặt field trong ngoặc kép khi chứa dấu phẩy, ngoặc kép hoặc xuống dòng (RFC 4180)
+     */
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String timestamp(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime().toString() : null;
+    }
+}
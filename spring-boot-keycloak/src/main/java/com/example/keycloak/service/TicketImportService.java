@@ -0,0 +1,422 @@
+package com.example.keycloak.service;
+
+import com.example.keycloak.dto.TicketEvent;
+import com.example.keycloak.dto.TicketFileFormat;
+import com.example.keycloak.dto.TicketImportResult;
+import com.example.keycloak.dto.TicketRequest;
+import com.example.keycloak.dto.TicketStatus;
+import com.example.keycloak.entity.AuditLog;
+import com.example.keycloak.entity.Ticket;
+import com.example.keycloak.repository.AuditLogBatchRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Ticket Import Service
+ * Bulk import ticket từ CSV hoặc NDJSON
+ *
+ * - Đọc stream từng dòng, không buffer toàn bộ file
+ * - Mỗi row được validate theo rule của TicketRequest, row lỗi được bỏ qua và báo lại theo số dòng
+ * - Row hợp lệ được insert theo chunk: id lấy trước từ sequence (một query cho cả chunk),
+ *   ticket và audit log insert bằng JDBC batch, mỗi chunk một transaction
+ * - Sau khi chunk commit: cập nhật stats, search index và phát ticket event như khi tạo từng ticket
+ * - CSV: field/record dài hơn giới hạn (ticket.import.*) bị từ chối, thường do thiếu dấu " đóng
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TicketImportService {
+
+    private static final int CHUNK_SIZE = 500;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final String NEXT_IDS_SQL = "SELECT nextval('tickets_id_seq') FROM generate_series(1, ?)";
+    private static final String INSERT_SQL = "INSERT INTO tickets " +
+            "(id, title, description, status, amount, maker_username, created_at, updated_at, version) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AuditLogBatchRepository auditLogBatchRepository;
+    private final TicketStatsService ticketStatsService;
+    private final TicketSearchService ticketSearchService;
+    private final TicketEventService ticketEventService;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+
+    @Value("${ticket.import.max-field-length:10000}")
+    private int maxFieldLength;
+
+    @Value("${ticket.import.max-record-length:20000}")
+    private int maxRecordLength;
+
+    /**
+     * @param input request body
+     * @param format CSV (có header: title, description, amount) hoặc NDJSON (mỗi dòng một TicketRequest)
+     * @param username maker của các ticket được import
+     * @return summary kèm lỗi theo từng dòng
+     */
+    public TicketImportResult importTickets(InputStream input, TicketFileFormat format, String username) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        ImportBatch batch = new ImportBatch(username);
+        if (format == TicketFileFormat.CSV) {
+            readCsv(reader, batch);
+        } else {
+            readNdjson(reader, batch);
+        }
+        batch.flush();
+        log.info("Ticket import finished: user={}, format={}, total={}, imported={}, failed={}",
+                username, format, batch.totalRows, batch.imported, batch.failed);
+        return batch.result();
+    }
+
+    private void readNdjson(BufferedReader reader, ImportBatch batch) throws IOException {
+        String line;
+        long lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                batch.add(lineNumber, objectMapper.readValue(line, TicketRequest.class));
+            } catch (JsonProcessingException e) {
+                batch.reject(lineNumber, "Invalid JSON: " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    private void readCsv(BufferedReader reader, ImportBatch batch) throws IOException {
+        CsvRecordReader csv = new CsvRecordReader(reader, maxFieldLength, maxRecordLength);
+        List<String> header = csv.next();
+        if (header == null) {
+            return;
+        }
+        if (csv.isTooLong()) {
+            throw new IllegalArgumentException("CSV header is too long (unmatched quote?)");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.containsKey("title")) {
+            throw new IllegalArgumentException("CSV header must contain a title column");
+        }
+
+        List<String> record;
+        while ((record = csv.next()) != null) {
+            long lineNumber = csv.getRecordLine();
+            if (record.size() == 1 && record.get(0).isBlank()) {
+                continue;
+            }
+            if (csv.isTooLong()) {
+                batch.reject(lineNumber, "Record exceeds " + maxRecordLength + " characters or a field exceeds "
+                        + maxFieldLength + " characters (unmatched quote?)");
+                continue;
+            }
+            if (csv.isUnterminated()) {
+                batch.reject(lineNumber, "Unterminated quoted field");
+                continue;
+            }
+            TicketRequest request = new TicketRequest();
+            request.setTitle(field(record, columns, "title"));
+            request.setDescription(field(record, columns, "description"));
+            String amount = field(record, columns, "amount");
+            if (amount != null && !amount.isBlank()) {
+                try {
+                    request.setAmount(new BigDecimal(amount.trim()));
+                } catch (NumberFormatException e) {
+                    batch.reject(lineNumber, "Invalid amount: " + amount);
+                    continue;
+                }
+            }
+            batch.add(lineNumber, request);
+        }
+    }
+
+    private static String field(List<String> record, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        return index != null && index < record.size() ? record.get(index) : null;
+    }
+
+    /**
+     * @return các ticket đã insert (dùng để cập nhật search index và phát event)
+     */
+    private List<Ticket> insertChunk(List<ImportRow> rows, String username) {
+        List<Long> ids = jdbcTemplate.queryForList(NEXT_IDS_SQL, Long.class, rows.size());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                TicketRequest request = rows.get(i).request;
+                ps.setLong(1, ids.get(i));
+                ps.setString(2, request.getTitle());
+                ps.setString(3, request.getDescription());
+                ps.setString(4, TicketStatus.DRAFT.name());
+                if (request.getAmount() != null) {
+                    ps.setBigDecimal(5, request.getAmount());
+                } else {
+                    ps.setNull(5, Types.NUMERIC);
+                }
+                ps.setString(6, username);
+                ps.setTimestamp(7, now);
+                ps.setTimestamp(8, now);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+
+        auditLogBatchRepository.insertAll(ids.stream()
+                .map(id -> AuditLog.builder()
+                        .action("CREATE")
+                        .entityType("TICKET")
+                        .entityId(id.toString())
+                        .userId(username)
+                        .details("Imported ticket in DRAFT status")
+                        .timestamp(now.toLocalDateTime())
+                        .build())
+                .collect(Collectors.toList()));
+
+        List<Ticket> tickets = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            TicketRequest request = rows.get(i).request;
+            tickets.add(Ticket.builder()
+                    .id(ids.get(i))
+                    .title(request.getTitle())
+                    .description(request.getDescription())
+                    .amount(request.getAmount())
+                    .status(TicketStatus.DRAFT)
+                    .maker(username)
+                    .createdAt(now.toLocalDateTime())
+                    .updatedAt(now.toLocalDateTime())
+                    .build());
+        }
+        return tickets;
+    }
+
+    private static final class ImportRow {
+        private final long line;
+        private final TicketRequest request;
+
+        private ImportRow(long line, TicketRequest request) {
+            this.line = line;
+            this.request = request;
+        }
+    }
+
+    /**
+     * Gom row hợp lệ thành chunk và ghi nhận kết quả của cả lần import
+     */
+    private final class ImportBatch {
+        private final String username;
+        private final List<ImportRow> rows = new ArrayList<>(CHUNK_SIZE);
+        private final List<TicketImportResult.RowError> errors = new ArrayList<>();
+        private long totalRows;
+        private long imported;
+        private long failed;
+
+        private ImportBatch(String username) {
+            this.username = username;
+        }
+
+        void add(long line, TicketRequest request) {
+            totalRows++;
+            Set<ConstraintViolation<TicketRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                fail(line, violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+                return;
+            }
+            rows.add(new ImportRow(line, request));
+            if (rows.size() >= CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        void reject(long line, String message) {
+            totalRows++;
+            fail(line, message);
+        }
+
+        void flush() {
+            if (rows.isEmpty()) {
+                return;
+            }
+            List<ImportRow> chunk = new ArrayList<>(rows);
+            rows.clear();
+            try {
+                List<Ticket> tickets = transactionTemplate.execute(status -> insertChunk(chunk, username));
+                imported += chunk.size();
+                ticketSearchService.index(tickets);
+                ticketEventService.publish(tickets.stream()
+                        .map(ticket -> TicketEvent.builder()
+                                .id(ticket.getId())
+                                .maker(ticket.getMaker())
+                                .newStatus(ticket.getStatus())
+                                .timestamp(ticket.getCreatedAt())
+                                .build())
+                        .collect(Collectors.toList()));
+                ticketStatsService.recordCreated(username, chunk.size(), chunk.stream()
+                        .map(row -> row.request.getAmount())
+                        .filter(Objects::nonNull)
+                        .reduce(BigDecimal.ZERO, BigDecimal::add));
+            } catch (RuntimeException e) {
+                // Cả chunk bị rollback: báo lỗi cho từng row trong chunk, chi tiết lỗi DB chỉ ghi log
+                log.error("Error importing ticket chunk: user={}, firstLine={}", username, chunk.get(0).line, e);
+                chunk.forEach(row -> fail(row.line, "Insert failed"));
+            }
+        }
+
+        private void fail(long line, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new TicketImportResult.RowError(line, message));
+            }
+        }
+
+        TicketImportResult result() {
+            return TicketImportResult.builder()
+                    .totalRows(totalRows)
+                    .imported(imported)
+                    .failed(failed)
+                    .errors(errors)
+                    .errorsTruncated(failed > errors.size())
+                    .build();
+        }
+    }
+
+    /**
+     * CSV reader tối giản theo RFC 4180: dấu phẩy, field trong ngoặc kép ("" là một dấu "),
+     * cho phép xuống dòng trong field có ngoặc kép
+     * Record vượt giới hạn: bỏ phần còn lại của dòng hiện tại, đọc tiếp từ dòng sau
+     */
+    private static final class CsvRecordReader {
+        private final BufferedReader reader;
+        private final int maxFieldLength;
+        private final int maxRecordLength;
+        private long line = 1;
+        private long recordLine;
+        private boolean unterminated;
+        private boolean tooLong;
+
+        private CsvRecordReader(BufferedReader reader, int maxFieldLength, int maxRecordLength) {
+            this.reader = reader;
+            this.maxFieldLength = maxFieldLength;
+            this.maxRecordLength = maxRecordLength;
+        }
+
+        List<String> next() throws IOException {
+            recordLine = line;
+            unterminated = false;
+            tooLong = false;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean inQuotes = false;
+            boolean read = false;
+            int recordLength = 0;
+            int c;
+            while ((c = reader.read()) != -1) {
+                read = true;
+                if (++recordLength > maxRecordLength || field.length() > maxFieldLength) {
+                    tooLong = true;
+                    skipLine(c);
+                    fields.add(field.toString());
+                    return fields;
+                }
+                char ch = (char) c;
+                if (inQuotes) {
+                    if (ch == '"') {
+                        reader.mark(1);
+                        int next = reader.read();
+                        if (next == '"') {
+                            field.append('"');
+                        } else {
+                            inQuotes = false;
+                            if (next != -1) {
+                                reader.reset();
+                            }
+                        }
+                    } else {
+                        if (ch == '\n') {
+                            line++;
+                        }
+                        field.append(ch);
+                    }
+                } else if (ch == '"') {
+                    inQuotes = true;
+                } else if (ch == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (ch == '\n') {
+                    line++;
+                    fields.add(field.toString());
+                    return fields;
+                } else if (ch != '\r') {
+                    field.append(ch);
+                }
+            }
+            if (!read) {
+                return null;
+            }
+            unterminated = inQuotes;
+            fields.add(field.toString());
+            return fields;
+        }
+
+        private void skipLine(int c) throws IOException {
+            while (c != -1 && c != '\n') {
+                c = reader.read();
+            }
+            if (c == '\n') {
+                line++;
+            }
+        }
+
+        long getRecordLine() {
+            return recordLine;
+        }
+
+        boolean isTooLong() {
+            return tooLong;
+        }
+
+        boolean isUnterminated() {
+            return unterminated;
+        }
+    }
+}
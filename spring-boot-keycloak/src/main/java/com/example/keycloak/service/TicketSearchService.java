@@ -0,0 +1,388 @@
+package com.example.keycloak.service;
+
+import com.example.keycloak.dto.TicketStatus;
+import com.example.keycloak.entity.Ticket;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoublePoint;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Ticket Search Service
+ * Full-text index (Lucene, nhúng trong ứng dụng) trên title và description của ticket
+ *
+ * - Index nằm trên disk (ticket.search.index-dir), mỗi instance một index riêng
+ * - Cập nhật near-real-time sau khi transaction commit, reader được reopen sau tối đa ticket.search.max-stale-seconds
+ * - Mọi instance đồng bộ định kỳ (ticket.search.sync-interval) các ticket có updated_at sau lần đồng bộ trước,
+ *   nên thay đổi commit ở instance khác cũng xuất hiện trong index sau tối đa một chu kỳ
+ * - Rebuild từ bảng tickets lúc khởi động (chạy nền) hoặc qua POST /api/tickets/search/rebuild
+ * - Index chỉ dùng để match và xếp hạng: nội dung ticket trả về luôn được đọc từ database
+ * - Analyzer bỏ dấu (ASCII folding) nên "phe duyet" vẫn tìm được "phê duyệt"
+ */
+@Slf4j
+@Service
+public class TicketSearchService {
+
+    private static final String ID = "id";
+    private static final String TITLE = "title";
+    private static final String DESCRIPTION = "description";
+    private static final String STATUS = "status";
+    private static final String MAKER = "maker";
+    private static final String AMOUNT = "amount";
+    // Match ở title quan trọng hơn ở description
+    private static final Map<String, Float> SEARCH_FIELDS = Map.of(TITLE, 2.0f, DESCRIPTION, 1.0f);
+    // Đếm chính xác tổng số kết quả tới ngưỡng này, lớn hơn thì total là giá trị tối thiểu
+    private static final int EXACT_TOTAL_THRESHOLD = 10_000;
+
+    private static final String SELECT_SQL = "SELECT id, title, description, status, amount, maker_username " +
+            "FROM tickets";
+
+    private final DataSource dataSource;
+    private final Analyzer analyzer = new FoldingAnalyzer();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "ticket-search-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${ticket.search.index-dir:${java.io.tmpdir}/ticket-search-index}")
+    private String indexDir;
+
+    @Value("${ticket.search.max-stale-seconds:1.0}")
+    private double maxStaleSeconds;
+
+    @Value("${ticket.search.rebuild-on-startup:true}")
+    private boolean rebuildOnStartup;
+
+    // updated_at được gán trước commit (và theo đồng hồ của instance khác): đọc lùi lại một khoảng
+    // khi rebuild catch-up và khi đồng bộ định kỳ để không bỏ sót ticket commit muộn
+    @Value("${ticket.search.catch-up-margin:PT1M}")
+    private Duration catchUpMargin;
+
+    @Value("${ticket.export.fetch-size:1000}")
+    private int fetchSize;
+
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+    private ControlledRealTimeReopenThread<IndexSearcher> reopenThread;
+    // Thời điểm bắt đầu lần rebuild/đồng bộ thành công gần nhất
+    private volatile LocalDateTime lastSyncedAt;
+
+    public TicketSearchService(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Kết quả tìm kiếm trên index: id theo thứ tự xếp hạng
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class SearchHits {
+        private final List<Long> ids;
+        private final long total;
+        private final boolean totalExact;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        IndexWriterConfig config = new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        writer = new IndexWriter(FSDirectory.open(Paths.get(indexDir)), config);
+        searcherManager = new SearcherManager(writer, null);
+        reopenThread = new ControlledRealTimeReopenThread<>(writer, searcherManager, maxStaleSeconds, 0.05);
+        reopenThread.setName("ticket-search-reopen");
+        reopenThread.setDaemon(true);
+        reopenThread.start();
+        log.info("Ticket search index opened: dir={}, docs={}", indexDir, writer.getDocStats().numDocs);
+        lastSyncedAt = LocalDateTime.now();
+        if (rebuildOnStartup) {
+            rebuild();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        rebuildExecutor.shutdownNow();
+        reopenThread.close();
+        searcherManager.close();
+        // close() commit các thay đổi chưa commit
+        writer.close();
+    }
+
+    /**
+     * Index (hoặc cập nhật) các ticket sau khi transaction hiện tại commit
+     * Lỗi chỉ được log, ticket sẽ được index lại ở lần đồng bộ định kỳ tiếp theo
+     * @param tickets the tickets
+     */
+    public void index(List<Ticket> tickets) {
+        if (tickets.isEmpty()) {
+            return;
+        }
+        Runnable action = () -> {
+            try {
+                for (Ticket ticket : tickets) {
+                    writer.updateDocument(new Term(ID, String.valueOf(ticket.getId())),
+                            toDocument(ticket.getId(), ticket.getTitle(), ticket.getDescription(),
+                                    ticket.getStatus().name(), ticket.getMaker(), ticket.getAmount()));
+                }
+            } catch (Exception e) {
+                log.error("Error indexing tickets: count={}", tickets.size(), e);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Tìm kiếm full-text kết hợp filter
+     * @param text từ khóa (cú pháp đơn giản: "cụm từ", -loại trừ, tiền tố*), rỗng để chỉ lọc theo filter
+     * @param status lọc theo status, null nếu không lọc
+     * @param maker lọc theo maker, null nếu không lọc
+     * @param minAmount amount tối thiểu, null nếu không giới hạn
+     * @param maxAmount amount tối đa, null nếu không giới hạn
+     * @param offset số kết quả bỏ qua
+     * @param limit số kết quả tối đa
+     * @return id theo thứ tự xếp hạng và tổng số kết quả
+     */
+    public SearchHits search(String text, TicketStatus status, String maker, BigDecimal minAmount,
+                             BigDecimal maxAmount, int offset, int limit) throws IOException {
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        query.add(textQuery(text), BooleanClause.Occur.MUST);
+        if (status != null) {
+            query.add(new TermQuery(new Term(STATUS, status.name())), BooleanClause.Occur.FILTER);
+        }
+        if (maker != null) {
+            query.add(new TermQuery(new Term(MAKER, maker)), BooleanClause.Occur.FILTER);
+        }
+        if (minAmount != null || maxAmount != null) {
+            query.add(DoublePoint.newRangeQuery(AMOUNT,
+                    minAmount != null ? minAmount.doubleValue() : Double.NEGATIVE_INFINITY,
+                    maxAmount != null ? maxAmount.doubleValue() : Double.POSITIVE_INFINITY),
+                    BooleanClause.Occur.FILTER);
+        }
+
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            TopScoreDocCollector collector = TopScoreDocCollector.create(offset + limit, EXACT_TOTAL_THRESHOLD);
+            searcher.search(query.build(), collector);
+            TopDocs topDocs = collector.topDocs(offset, limit);
+            List<Long> ids = new ArrayList<>(topDocs.scoreDocs.length);
+            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                ids.add(Long.parseLong(searcher.doc(scoreDoc.doc).get(ID)));
+            }
+            return new SearchHits(ids, topDocs.totalHits.value,
+                    topDocs.totalHits.relation == TotalHits.Relation.EQUAL_TO);
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    /**
+     * Rebuild index từ bảng tickets (chạy nền, bỏ qua nếu đang rebuild)
+     * Search vẫn hoạt động trong lúc rebuild vì document được cập nhật theo id thay vì xóa toàn bộ index
+     * @return false nếu đang có rebuild khác chạy
+     */
+    public boolean rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return false;
+        }
+        rebuildExecutor.execute(() -> {
+            try {
+                long start = System.currentTimeMillis();
+                LocalDateTime startedAt = LocalDateTime.now();
+                long count = indexFromTable(null);
+                // Ticket thay đổi trong lúc rebuild có thể bị ghi đè bằng dữ liệu cũ của cursor
+                count += indexFromTable(startedAt.minus(catchUpMargin));
+                writer.commit();
+                lastSyncedAt = startedAt;
+                log.info("Rebuilt ticket search index: documents={}, took={}ms",
+                        count, System.currentTimeMillis() - start);
+            } catch (Exception e) {
+                log.error("Error rebuilding ticket search index", e);
+            } finally {
+                rebuilding.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Đồng bộ định kỳ với bảng tickets: index lại các ticket có updated_at từ lần đồng bộ trước
+     * (trừ catch-up-margin), bao gồm thay đổi được commit ở instance khác. Bỏ qua khi đang rebuild
+     */
+    @Scheduled(initialDelayString = "${ticket.search.sync-interval:PT10S}",
+            fixedDelayString = "${ticket.search.sync-interval:PT10S}")
+    public void sync() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            LocalDateTime startedAt = LocalDateTime.now();
+            long count = indexFromTable(lastSyncedAt.minus(catchUpMargin));
+            lastSyncedAt = startedAt;
+            log.debug("Synced ticket search index: documents={}", count);
+        } catch (Exception e) {
+            log.error("Error syncing ticket search index", e);
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    /**
+     * Commit định kỳ để index trên disk không quá cũ khi restart
+     */
+    @Scheduled(fixedDelayString = "${ticket.search.commit-interval:PT1M}")
+    public void commit() {
+        try {
+            if (writer.hasUncommittedChanges()) {
+                writer.commit();
+            }
+        } catch (Exception e) {
+            log.error("Error committing ticket search index", e);
+        }
+    }
+
+    private Query textQuery(String text) {
+        if (!StringUtils.hasText(text)) {
+            return new MatchAllDocsQuery();
+        }
+        SimpleQueryParser parser = new SimpleQueryParser(analyzer, SEARCH_FIELDS);
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        return parser.parse(text.trim());
+    }
+
+    /**
+     * Đọc tickets bằng JDBC cursor (giống export) và cập nhật document theo id
+     * @param updatedSince chỉ index ticket có updated_at từ thời điểm này, null để index tất cả
+     */
+    private long indexFromTable(LocalDateTime updatedSince) throws SQLException, IOException {
+        String sql = SELECT_SQL + (updatedSince != null ? " WHERE updated_at >= ?" : "");
+        try (Connection connection = dataSource.getConnection()) {
+            // PostgreSQL chỉ dùng cursor khi autocommit tắt và fetch size > 0
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            try (PreparedStatement statement = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(fetchSize);
+                if (updatedSince != null) {
+                    statement.setTimestamp(1, Timestamp.valueOf(updatedSince));
+                }
+                long count = 0;
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        long id = rs.getLong("id");
+                        writer.updateDocument(new Term(ID, String.valueOf(id)),
+                                toDocument(id, rs.getString("title"), rs.getString("description"),
+                                        rs.getString("status"), rs.getString("maker_username"),
+                                        rs.getBigDecimal("amount")));
+                        count++;
+                    }
+                }
+                connection.commit();
+                return count;
+            } finally {
+                connection.setReadOnly(false);
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static Document toDocument(long id, String title, String description, String status, String maker,
+                                       BigDecimal amount) {
+        Document document = new Document();
+        document.add(new StringField(ID, String.valueOf(id), Field.Store.YES));
+        if (title != null) {
+            document.add(new TextField(TITLE, title, Field.Store.NO));
+        }
+        if (description != null) {
+            document.add(new TextField(DESCRIPTION, description, Field.Store.NO));
+        }
+        document.add(new StringField(STATUS, status, Field.Store.NO));
+        if (maker != null) {
+            document.add(new StringField(MAKER, maker, Field.Store.NO));
+        }
+        if (amount != null) {
+            document.add(new DoublePoint(AMOUNT, amount.doubleValue()));
+        }
+        return document;
+    }
+
+    /**
+     * StandardTokenizer + lowercase + bỏ dấu, dùng cho cả lúc index và lúc parse query
+     */
+    private static final class FoldingAnalyzer extends Analyzer {
+
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            StandardTokenizer tokenizer = new StandardTokenizer();
+            TokenStream stream = new ASCIIFoldingFilter(new LowerCaseFilter(tokenizer));
+            return new TokenStreamComponents(tokenizer, stream);
+        }
+
+        @Override
+        protected TokenStream normalize(String fieldName, TokenStream in) {
+            return new ASCIIFoldingFilter(new LowerCaseFilter(in));
+        }
+    }
+}
@@ -1,50 +1,257 @@
 package com.example.keycloak.service;
 
+import com.example.keycloak.dto.BatchTicketResult;
+import com.example.keycloak.dto.TicketChanges;
+import com.example.keycloak.dto.TicketClaim;
+import com.example.keycloak.dto.TicketCursor;
 import com.example.keycloak.dto.TicketDTO;
+import com.example.keycloak.dto.TicketEvent;
+import com.example.keycloak.dto.TicketFilter;
+import com.example.keycloak.dto.TicketPage;
 import com.example.keycloak.dto.TicketRequest;
+import com.example.keycloak.dto.TicketSearchResult;
 import com.example.keycloak.dto.TicketStatus;
+import com.example.keycloak.dto.TicketSummary;
 import com.example.keycloak.entity.AuditLog;
 import com.example.keycloak.entity.Ticket;
-import com.example.keycloak.repository.AuditLogRepository;
+import com.example.keycloak.repository.TicketFilterRepository;
 import com.example.keycloak.repository.TicketRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.DigestUtils;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class TicketService {
 
+    private static final String CLAIMED_BY_OTHER = "Ticket is claimed by another checker";
+
     private final TicketRepository ticketRepository;
-    private final AuditLogRepository auditLogRepository;
+    private final TicketFilterRepository ticketFilterRepository;
+    private final TicketStatsService ticketStatsService;
+    private final TicketEventService ticketEventService;
+    private final TicketSearchService ticketSearchService;
+    private final AuditLogWriter auditLogWriter;
 
-    public List<TicketDTO> getAllTickets() {
-        return ticketRepository.findAll().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    @Value("${ticket.pagination.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${ticket.pagination.max-size:200}")
+    private int maxPageSize;
+
+    @Value("${ticket.search.default-size:20}")
+    private int defaultSearchSize;
+
+    @Value("${ticket.search.max-window:1000}")
+    private int maxSearchWindow;
+
+    @Value("${ticket.claim.lease-duration:PT15M}")
+    private Duration claimLeaseDuration;
+
+    @Value("${ticket.claim.max-batch:50}")
+    private int maxClaimBatch;
+
+    @Value("${ticket.changes.commit-lag:PT5S}")
+    private Duration changesCommitLag;
+
+    @Transactional(readOnly = true)
+    public TicketPage getAllTickets(String cursor, Integer size) {
+        Pageable page = pageRequest(size);
+        if (cursor == null) {
+            return toPage(ticketRepository.findFirstPage(page), page);
+        }
+        TicketCursor after = TicketCursor.decode(cursor);
+        return toPage(ticketRepository.findPageAfter(after.getTimestamp(), after.getId(), page), page);
     }
 
-    public List<TicketDTO> getTicketsByMaker(String username) {
-        return ticketRepository.findByMaker(username).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public TicketPage getTicketsByMaker(String username, String cursor, Integer size) {
+        Pageable page = pageRequest(size);
+        if (cursor == null) {
+            return toPage(ticketRepository.findFirstPageByMaker(username, page), page);
+        }
+        TicketCursor after = TicketCursor.decode(cursor);
+        return toPage(ticketRepository.findPageByMakerAfter(username, after.getTimestamp(), after.getId(), page), page);
+    }
+
+    @Transactional(readOnly = true)
+    public TicketPage getTicketsByStatus(TicketStatus status, String cursor, Integer size) {
+        Pageable page = pageRequest(size);
+        if (cursor == null) {
+            return toPage(ticketRepository.findFirstPageByStatus(status, page), page);
+        }
+        TicketCursor after = TicketCursor.decode(cursor);
+        return toPage(ticketRepository.findPageByStatusAfter(status, after.getTimestamp(), after.getId(), page), page);
+    }
+
+    /**
+     * Lọc theo nhiều điều kiện kết hợp (một câu SQL), keyset pagination giống các danh sách khác
+     */
+    @Transactional(readOnly = true)
+    public TicketPage getFilteredTickets(TicketFilter filter, String cursor, Integer size) {
+        if (filter.getMinAmount() != null && filter.getMaxAmount() != null
+                && filter.getMinAmount().compareTo(filter.getMaxAmount()) > 0) {
+            throw new IllegalArgumentException("minAmount must not be greater than maxAmount");
+        }
+        if (isInvalidRange(filter.getCreatedFrom(), filter.getCreatedTo())
+                || isInvalidRange(filter.getUpdatedFrom(), filter.getUpdatedTo())) {
+            throw new IllegalArgumentException("Date range start must be before its end");
+        }
+        Pageable page = pageRequest(size);
+        TicketCursor after = cursor != null ? TicketCursor.decode(cursor) : null;
+        List<TicketDTO> tickets = ticketFilterRepository.findPage(filter, after, page.getPageSize());
+
+        String nextCursor = null;
+        if (tickets.size() == page.getPageSize()) {
+            TicketDTO last = tickets.get(tickets.size() - 1);
+            nextCursor = new TicketCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return TicketPage.builder()
+                .items(tickets)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    private static boolean isInvalidRange(LocalDateTime from, LocalDateTime to) {
+        return from != null && to != null && !from.isBefore(to);
+    }
+
+    /**
+     * Delta sync: ticket có updated_at sau cursor
+     * @param maker null để lấy thay đổi của tất cả ticket
+     * @param since cursor của lần gọi trước, null để đọc từ đầu
+     */
+    @Transactional(readOnly = true)
+    public TicketChanges getChanges(String maker, String since, Integer size) {
+        Pageable page = pageRequest(size);
+        // updated_at được gán trước khi commit: chỉ đọc tới (now - changesCommitLag) để thay đổi
+        // commit muộn hơn một thay đổi mới hơn không bị cursor bỏ qua
+        LocalDateTime until = LocalDateTime.now().minus(changesCommitLag);
+        TicketCursor after = since != null ? TicketCursor.decode(since) : null;
+
+        List<TicketSummary> tickets;
+        if (maker == null) {
+            tickets = after == null
+                    ? ticketRepository.findChanges(until, page)
+                    : ticketRepository.findChangesAfter(after.getTimestamp(), after.getId(), until, page);
+        } else {
+            tickets = after == null
+                    ? ticketRepository.findChangesByMaker(maker, until, page)
+                    : ticketRepository.findChangesByMakerAfter(maker, after.getTimestamp(), after.getId(), until, page);
+        }
+
+        String cursor;
+        if (!tickets.isEmpty()) {
+            TicketSummary last = tickets.get(tickets.size() - 1);
+            cursor = new TicketCursor(last.getUpdatedAt(), last.getId()).encode();
+        } else {
+            cursor = since != null ? since : new TicketCursor(until, 0L).encode();
+        }
+        return TicketChanges.builder()
+                .items(tickets.stream().map(this::convertToDTO).collect(Collectors.toList()))
+                .cursor(cursor)
+                .hasMore(tickets.size() == page.getPageSize())
+                .build();
     }
 
-    public List<TicketDTO> getTicketsByStatus(TicketStatus status) {
-        return ticketRepository.findByStatus(status).stream()
+    /**
+     * Full-text search: Lucene trả về id theo thứ tự xếp hạng, nội dung đọc từ database
+     * @param maker lọc theo maker, null nếu không lọc
+     */
+    @Transactional(readOnly = true)
+    public TicketSearchResult searchTickets(String text, TicketStatus status, String maker, BigDecimal minAmount,
+                                            BigDecimal maxAmount, int page, Integer size) {
+        int pageSize = Math.min(size == null ? defaultSearchSize : size, maxPageSize);
+        if (pageSize < 1 || page < 0) {
+            throw new IllegalArgumentException("Page must be non-negative and size positive");
+        }
+        if ((long) (page + 1) * pageSize > maxSearchWindow) {
+            throw new IllegalArgumentException("Search results are limited to the first " + maxSearchWindow);
+        }
+
+        TicketSearchService.SearchHits hits;
+        try {
+            hits = ticketSearchService.search(text, status, maker, minAmount, maxAmount, page * pageSize, pageSize);
+        } catch (IOException e) {
+            throw new RuntimeException("Ticket search is temporarily unavailable", e);
+        }
+        Map<Long, TicketSummary> tickets = hits.getIds().isEmpty() ? Map.of()
+                : ticketRepository.findSummariesByIdIn(hits.getIds()).stream()
+                        .collect(Collectors.toMap(TicketSummary::getId, Function.identity()));
+        // Giữ thứ tự xếp hạng, bỏ ticket không còn thỏa status (index có thể chậm hơn database)
+        List<TicketDTO> items = hits.getIds().stream()
+                .map(tickets::get)
+                .filter(Objects::nonNull)
+                .filter(ticket -> status == null || ticket.getStatus() == status)
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
+        return TicketSearchResult.builder()
+                .items(items)
+                .page(page)
+                .size(pageSize)
+                .total(hits.getTotal())
+                .totalExact(hits.isTotalExact())
+                .build();
     }
 
+    @Transactional(readOnly = true)
     public TicketDTO getTicketById(Long id) {
         return ticketRepository.findById(id)
                 .map(this::convertToDTO)
                 .orElseThrow(() -> new RuntimeException("Ticket not found with id: " + id));
     }
 
+    /**
+     * Strong ETag của một ticket: version tăng ở mọi thao tác sửa/chuyển trạng thái
+     * Chỉ đọc cột version, không load ticket
+     */
+    @Transactional(readOnly = true)
+    public String getTicketEtag(Long id) {
+        Long version = ticketRepository.findVersionById(id)
+                .orElseThrow(() -> new RuntimeException("Ticket not found with id: " + id));
+        return id + "-" + version;
+    }
+
+    /**
+     * ETag của một trang danh sách: hash của bộ lọc, cursor, size và list version trong Redis
+     * (tăng sau mỗi lần ticket được tạo/chuyển trạng thái), không query bảng tickets
+     * @param maker lọc theo maker, null nếu không lọc
+     * @param status lọc theo status, null nếu không lọc
+     * @return null nếu không đọc được list version (response không có ETag)
+     */
+    public String getTicketListEtag(String maker, TicketStatus status, String cursor, Integer size) {
+        String version = ticketStatsService.getListVersion();
+        if (version == null) {
+            return null;
+        }
+        String key = String.join("|", String.valueOf(maker), String.valueOf(status), String.valueOf(cursor),
+                String.valueOf(size), version);
+        return DigestUtils.md5DigestAsHex(key.getBytes(StandardCharsets.UTF_8));
+    }
+
     @Transactional
     public TicketDTO createTicket(TicketRequest request, String username) {
         Ticket ticket = Ticket.builder()
@@ -57,67 +264,242 @@ public class TicketService {
 
         Ticket savedTicket = ticketRepository.save(ticket);
         logAudit("CREATE", savedTicket.getId().toString(), username, "Created ticket in DRAFT status");
+        ticketStatsService.recordCreated(username, 1, savedTicket.getAmount());
+        ticketEventService.publish(List.of(toEvent(savedTicket, null)));
+        ticketSearchService.index(List.of(savedTicket));
         return convertToDTO(savedTicket);
     }
 
     @Transactional
     public TicketDTO submitTicket(Long id, String username) {
-        Ticket ticket = ticketRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Ticket not found"));
-
-        if (!ticket.getMaker().equals(username)) {
-            throw new RuntimeException("Only the maker can submit the ticket");
-        }
-
-        if (ticket.getStatus() != TicketStatus.DRAFT && ticket.getStatus() != TicketStatus.REJECTED) {
-            throw new RuntimeException("Only DRAFT or REJECTED tickets can be submitted");
-        }
-
-        ticket.setStatus(TicketStatus.SUBMITTED);
-        Ticket savedTicket = ticketRepository.save(ticket);
+        Ticket savedTicket = ticketRepository.submit(id, username, LocalDateTime.now())
+                .orElseThrow(() -> submitFailure(id, username));
         logAudit("SUBMIT", savedTicket.getId().toString(), username, "Submitted ticket for approval");
+        // checker chỉ được set khi approve/reject, ticket submit được mà đã có checker thì trước đó là REJECTED
+        TicketStatus previousStatus = savedTicket.getChecker() != null ? TicketStatus.REJECTED : TicketStatus.DRAFT;
+        ticketStatsService.recordTransition(username, savedTicket.getAmount(), previousStatus, TicketStatus.SUBMITTED);
+        ticketEventService.publish(List.of(toEvent(savedTicket, previousStatus)));
+        ticketSearchService.index(List.of(savedTicket));
         return convertToDTO(savedTicket);
     }
 
     @Transactional
     public TicketDTO approveTicket(Long id, String checkerUsername) {
-        Ticket ticket = ticketRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Ticket not found"));
+        Ticket savedTicket = ticketRepository.approve(id, checkerUsername, LocalDateTime.now())
+                .orElseThrow(() -> checkFailure(id, checkerUsername, "approved"));
+        logAudit("APPROVE", savedTicket.getId().toString(), checkerUsername, "Approved ticket");
+        ticketStatsService.recordTransition(savedTicket.getMaker(), savedTicket.getAmount(),
+                TicketStatus.SUBMITTED, TicketStatus.APPROVED);
+        ticketEventService.publish(List.of(toEvent(savedTicket, TicketStatus.SUBMITTED)));
+        ticketSearchService.index(List.of(savedTicket));
+        return convertToDTO(savedTicket);
+    }
+
+    @Transactional
+    public TicketDTO rejectTicket(Long id, String checkerUsername, String reason) {
+        Ticket savedTicket = ticketRepository.reject(id, checkerUsername, reason, LocalDateTime.now())
+                .orElseThrow(() -> checkFailure(id, checkerUsername, "rejected"));
+        logAudit("REJECT", savedTicket.getId().toString(), checkerUsername, "Rejected ticket with reason: " + reason);
+        ticketStatsService.recordTransition(savedTicket.getMaker(), savedTicket.getAmount(),
+                TicketStatus.SUBMITTED, TicketStatus.REJECTED);
+        ticketEventService.publish(List.of(toEvent(savedTicket, TicketStatus.SUBMITTED)));
+        ticketSearchService.index(List.of(savedTicket));
+        return convertToDTO(savedTicket);
+    }
+
+    /**
+     * Batch approve: các ticket hợp lệ được chuyển trạng thái bằng một câu UPDATE,
+     * audit log được insert bằng một JDBC batch trong cùng transaction
+     * @return kết quả theo thứ tự ids (id trùng chỉ xử lý một lần)
+     */
+    @Transactional
+    public List<BatchTicketResult> approveTickets(List<Long> ids, String checkerUsername) {
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        List<Ticket> tickets = ticketRepository.approveAll(uniqueIds, checkerUsername, LocalDateTime.now());
+        Set<Long> approved = toIdSet(tickets);
+        logAuditBatch("APPROVE", approved, checkerUsername, "Approved ticket");
+        recordBatchTransition(tickets, TicketStatus.APPROVED);
+        publishBatchEvents(tickets);
+        return batchResults(uniqueIds, approved, TicketStatus.APPROVED, checkerUsername, "approved");
+    }
+
+    /**
+     * Batch reject, cùng cách xử lý với {@link #approveTickets(List, String)}
+     */
+    @Transactional
+    public List<BatchTicketResult> rejectTickets(List<Long> ids, String checkerUsername, String reason) {
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        List<Ticket> tickets = ticketRepository.rejectAll(uniqueIds, checkerUsername, reason, LocalDateTime.now());
+        Set<Long> rejected = toIdSet(tickets);
+        logAuditBatch("REJECT", rejected, checkerUsername, "Rejected ticket with reason: " + reason);
+        recordBatchTransition(tickets, TicketStatus.REJECTED);
+        publishBatchEvents(tickets);
+        return batchResults(uniqueIds, rejected, TicketStatus.REJECTED, checkerUsername, "rejected");
+    }
 
-        if (ticket.getMaker().equals(checkerUsername)) {
-            throw new RuntimeException("Maker and Checker must be different");
+    /**
+     * Claim tối đa batch ticket SUBMITTED chưa có checker nào giữ, các checker gọi đồng thời nhận các ticket khác nhau
+     * Lease hết hạn thì ticket tự quay lại hàng đợi, approve/reject sẽ giải phóng claim
+     */
+    @Transactional
+    public TicketClaim claimNextTickets(String checkerUsername, Integer batch) {
+        int batchSize = batch == null ? 1 : batch;
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive");
         }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plus(claimLeaseDuration);
+        // RETURNING không giữ thứ tự của subquery
+        List<Ticket> tickets = new ArrayList<>(ticketRepository.claimNext(checkerUsername,
+                Math.min(batchSize, maxClaimBatch), now, expiresAt));
+        tickets.sort(Comparator.comparing(Ticket::getCreatedAt).thenComparing(Ticket::getId));
+        // Claim được gọi liên tục và không đổi trạng thái ticket: audit log ghi bất đồng bộ
+        auditLogWriter.write(auditLogs("CLAIM", toIdSet(tickets), checkerUsername,
+                "Claimed ticket until " + expiresAt));
+        return TicketClaim.builder()
+                .tickets(tickets.stream().map(this::convertToDTO).collect(Collectors.toList()))
+                .leaseExpiresAt(expiresAt)
+                .build();
+    }
 
-        if (ticket.getStatus() != TicketStatus.SUBMITTED) {
-            throw new RuntimeException("Only SUBMITTED tickets can be approved");
+    /**
+     * Dọn claim đã hết hạn (ticket hết hạn lease vẫn claim lại được ngay cả khi job chưa chạy)
+     */
+    @Scheduled(fixedDelayString = "${ticket.claim.release-interval:PT1M}")
+    @Transactional
+    public void releaseExpiredClaims() {
+        int released = ticketRepository.releaseExpiredClaims(LocalDateTime.now());
+        if (released > 0) {
+            log.info("Released expired ticket claims: count={}", released);
         }
+    }
 
-        ticket.setStatus(TicketStatus.APPROVED);
-        ticket.setChecker(checkerUsername);
-        Ticket savedTicket = ticketRepository.save(ticket);
-        logAudit("APPROVE", savedTicket.getId().toString(), checkerUsername, "Approved ticket");
-        return convertToDTO(savedTicket);
+    private Set<Long> toIdSet(List<Ticket> tickets) {
+        return tickets.stream()
+                .map(Ticket::getId)
+                .collect(Collectors.toSet());
     }
 
-    @Transactional
-    public TicketDTO rejectTicket(Long id, String checkerUsername, String reason) {
-        Ticket ticket = ticketRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Ticket not found"));
+    /**
+     * Cập nhật counter theo từng maker (một pipeline mỗi maker)
+     */
+    private void recordBatchTransition(List<Ticket> tickets, TicketStatus newStatus) {
+        Map<String, List<Ticket>> byMaker = tickets.stream()
+                .collect(Collectors.groupingBy(Ticket::getMaker));
+        byMaker.forEach((maker, makerTickets) -> ticketStatsService.recordTransitions(maker, makerTickets.size(),
+                makerTickets.stream()
+                        .map(Ticket::getAmount)
+                        .filter(Objects::nonNull)
+                        .reduce(BigDecimal.ZERO, BigDecimal::add),
+                TicketStatus.SUBMITTED, newStatus));
+    }
+
+    private void publishBatchEvents(List<Ticket> tickets) {
+        ticketEventService.publish(tickets.stream()
+                .map(ticket -> toEvent(ticket, TicketStatus.SUBMITTED))
+                .collect(Collectors.toList()));
+        ticketSearchService.index(tickets);
+    }
 
-        if (ticket.getMaker().equals(checkerUsername)) {
-            throw new RuntimeException("Maker and Checker must be different");
+    private TicketEvent toEvent(Ticket ticket, TicketStatus oldStatus) {
+        return TicketEvent.builder()
+                .id(ticket.getId())
+                .maker(ticket.getMaker())
+                .oldStatus(oldStatus)
+                .newStatus(ticket.getStatus())
+                .checker(ticket.getChecker())
+                .timestamp(ticket.getUpdatedAt() != null ? ticket.getUpdatedAt() : ticket.getCreatedAt())
+                .build();
+    }
+
+    /**
+     * Ticket không được cập nhật: đọc projection (một query cho cả batch) để trả lỗi cụ thể
+     */
+    private List<BatchTicketResult> batchResults(Set<Long> ids, Set<Long> updated, TicketStatus newStatus,
+                                                 String checkerUsername, String action) {
+        List<Long> failedIds = ids.stream()
+                .filter(id -> !updated.contains(id))
+                .collect(Collectors.toList());
+        Map<Long, TicketSummary> failed = failedIds.isEmpty() ? Map.of()
+                : ticketRepository.findSummariesByIdIn(failedIds).stream()
+                        .collect(Collectors.toMap(TicketSummary::getId, Function.identity()));
+
+        List<BatchTicketResult> results = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            if (updated.contains(id)) {
+                results.add(BatchTicketResult.builder().id(id).success(true).status(newStatus).build());
+                continue;
+            }
+            TicketSummary ticket = failed.get(id);
+            String error;
+            if (ticket == null) {
+                error = "Ticket not found";
+            } else if (checkerUsername.equals(ticket.getMaker())) {
+                error = "Maker and Checker must be different";
+            } else if (ticket.getStatus() == TicketStatus.SUBMITTED) {
+                // Điều kiện còn lại của UPDATE: ticket đang được checker khác claim
+                error = CLAIMED_BY_OTHER;
+            } else {
+                error = "Only SUBMITTED tickets can be " + action;
+            }
+            results.add(BatchTicketResult.builder()
+                    .id(id)
+                    .success(false)
+                    .status(ticket != null ? ticket.getStatus() : null)
+                    .error(error)
+                    .build());
         }
+        return results;
+    }
 
-        if (ticket.getStatus() != TicketStatus.SUBMITTED) {
-            throw new RuntimeException("Only SUBMITTED tickets can be rejected");
+    /**
+     * UPDATE có điều kiện không match: đọc lại ticket để trả về lỗi cụ thể (chỉ chạy khi thất bại)
+     */
+    private RuntimeException submitFailure(Long id, String username) {
+        Ticket ticket = ticketRepository.findById(id).orElse(null);
+        if (ticket == null) {
+            return new RuntimeException("Ticket not found");
         }
+        if (!username.equals(ticket.getMaker())) {
+            return new RuntimeException("Only the maker can submit the ticket");
+        }
+        return new RuntimeException("Only DRAFT or REJECTED tickets can be submitted");
+    }
 
-        ticket.setStatus(TicketStatus.REJECTED);
-        ticket.setChecker(checkerUsername);
-        ticket.setRejectionReason(reason);
-        Ticket savedTicket = ticketRepository.save(ticket);
-        logAudit("REJECT", savedTicket.getId().toString(), checkerUsername, "Rejected ticket with reason: " + reason);
-        return convertToDTO(savedTicket);
+    private RuntimeException checkFailure(Long id, String checkerUsername, String action) {
+        Ticket ticket = ticketRepository.findById(id).orElse(null);
+        if (ticket == null) {
+            return new RuntimeException("Ticket not found");
+        }
+        if (checkerUsername.equals(ticket.getMaker())) {
+            return new RuntimeException("Maker and Checker must be different");
+        }
+        if (ticket.getStatus() == TicketStatus.SUBMITTED) {
+            return new RuntimeException(CLAIMED_BY_OTHER);
+        }
+        return new RuntimeException("Only SUBMITTED tickets can be " + action);
+    }
+
+    /**
+     * Audit log của chuyển trạng thái: ghi trong transaction nghiệp vụ
+     */
+    private void logAuditBatch(String action, Collection<Long> entityIds, String userId, String details) {
+        auditLogWriter.writeInTransaction(auditLogs(action, entityIds, userId, details));
+    }
+
+    private static List<AuditLog> auditLogs(String action, Collection<Long> entityIds, String userId,
+                                            String details) {
+        LocalDateTime now = LocalDateTime.now();
+        return entityIds.stream()
+                .map(id -> AuditLog.builder()
+                        .action(action)
+                        .entityType("TICKET")
+                        .entityId(id.toString())
+                        .userId(userId)
+                        .details(details)
+                        .timestamp(now)
+                        .build())
+                .collect(Collectors.toList());
     }
 
     private void logAudit(String action, String entityId, String userId, String details) {
@@ -127,8 +509,49 @@ public class TicketService {
                 .entityId(entityId)
                 .userId(userId)
                 .details(details)
+                .timestamp(LocalDateTime.now())
+                .build();
+        auditLogWriter.writeInTransaction(List.of(auditLog));
+    }
+
+    /**
+     * Page size mặc định khi client không truyền, và bị giới hạn bởi maxPageSize
+     */
+    private Pageable pageRequest(Integer size) {
+        int pageSize = size == null ? defaultPageSize : size;
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return PageRequest.of(0, Math.min(pageSize, maxPageSize));
+    }
+
+    private TicketPage toPage(List<TicketSummary> tickets, Pageable page) {
+        String nextCursor = null;
+        if (tickets.size() == page.getPageSize()) {
+            TicketSummary last = tickets.get(tickets.size() - 1);
+            nextCursor = new TicketCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return TicketPage.builder()
+                .items(tickets.stream().map(this::convertToDTO).collect(Collectors.toList()))
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * List view: không có description
+     */
+    private TicketDTO convertToDTO(TicketSummary ticket) {
+        return TicketDTO.builder()
+                .id(ticket.getId())
+                .title(ticket.getTitle())
+                .status(ticket.getStatus())
+                .amount(ticket.getAmount())
+                .maker(ticket.getMaker())
+                .checker(ticket.getChecker())
+                .rejectionReason(ticket.getRejectionReason())
+                .createdAt(ticket.getCreatedAt())
+                .updatedAt(ticket.getUpdatedAt())
                 .build();
-        auditLogRepository.save(auditLog);
     }
 
     private TicketDTO convertToDTO(Ticket ticket) {
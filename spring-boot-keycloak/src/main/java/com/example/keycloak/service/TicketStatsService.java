@@ -0,0 +1,283 @@
+package com.example.keycloak.service;
+
+import com.example.keycloak.dto.TicketStatsDTO;
+import com.example.keycloak.dto.TicketStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ticket Stats Service
+ * Counter cho dashboard, cập nhật dần theo từng thao tác thay vì đếm lại từ bảng tickets
+ *
+ * Redis hashes (field "STATUS" = số ticket, "STATUS:amountMinor" = tổng amount theo đơn vị nhỏ nhất,
+ * amount * 10^AMOUNT_SCALE, để HINCRBY cộng chính xác thay vì HINCRBYFLOAT bị sai số double):
+ * - ticket:stats:status          trạng thái hiện tại của tất cả ticket
+ * - ticket:stats:maker:{maker}   trạng thái hiện tại theo maker
+ * - ticket:stats:day:{yyyy-MM-dd} số ticket chuyển sang từng trạng thái trong ngày (không giảm)
+ *
+ * ticket:list:version (string) tăng sau mỗi lần ghi ticket, dùng làm ETag cho danh sách ticket.
+ * INCR chạy sau commit nên request nào đọc được version mới cũng đọc được dữ liệu đã commit
+ *
+ * - Counter chỉ được cập nhật sau khi transaction commit
+ * - Định kỳ reconcile counter theo trạng thái/maker với SQL để sửa sai lệch (Redis lỗi, restart...)
+ *
+ * Reconcile không đồng bộ hoàn toàn với các thao tác đang chạy: snapshot SQL được ghi đè lên counter bằng RENAME,
+ * nên thao tác commit giữa lúc GROUP BY và RENAME bị mất, còn thao tác đã có trong snapshot nhưng after-commit
+ * chạy sau RENAME bị cộng hai lần. Sai lệch chỉ giới hạn ở các thao tác trong cửa sổ đó (thường vài chục ms)
+ * và không tích lũy: lần reconcile tiếp theo lại tính từ SQL.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TicketStatsService {
+
+    private static final String STATUS_KEY = "ticket:stats:status";
+    private static final String MAKER_KEY_PREFIX = "ticket:stats:maker:";
+    private static final String DAY_KEY_PREFIX = "ticket:stats:day:";
+    private static final String AMOUNT_SUFFIX = ":amountMinor";
+    // tickets.amount là numeric(19, 2)
+    private static final int AMOUNT_SCALE = 2;
+    private static final Duration DAY_KEY_TTL = Duration.ofDays(400);
+    private static final String RECONCILE_LOCK_KEY = "ticket:stats:reconcile:lock";
+    private static final String LIST_VERSION_KEY = "ticket:list:version";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Ghi nhận ticket mới (trạng thái DRAFT)
+     * @param maker the maker
+     * @param count số ticket
+     * @param amount tổng amount của các ticket
+     */
+    public void recordCreated(String maker, long count, BigDecimal amount) {
+        long amountValue = toMinorUnits(amount);
+        afterCommit(() -> stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection redis = (StringRedisConnection) connection;
+            String field = TicketStatus.DRAFT.name();
+            for (String key : List.of(STATUS_KEY, MAKER_KEY_PREFIX + maker, dayKey())) {
+                redis.hIncrBy(key, field, count);
+                redis.hIncrBy(key, field + AMOUNT_SUFFIX, amountValue);
+            }
+            redis.expire(dayKey(), DAY_KEY_TTL.getSeconds());
+            redis.incr(LIST_VERSION_KEY);
+            return null;
+        }), "create", maker);
+    }
+
+    /**
+     * Ghi nhận ticket chuyển trạng thái
+     * @param maker the maker
+     * @param amount amount của ticket
+     * @param from trạng thái cũ
+     * @param to trạng thái mới
+     */
+    public void recordTransition(String maker, BigDecimal amount, TicketStatus from, TicketStatus to) {
+        recordTransitions(maker, 1, amount, from, to);
+    }
+
+    /**
+     * Ghi nhận nhiều ticket của cùng maker chuyển trạng thái (batch approve/reject)
+     */
+    public void recordTransitions(String maker, long count, BigDecimal amount, TicketStatus from, TicketStatus to) {
+        long amountValue = toMinorUnits(amount);
+        afterCommit(() -> stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection redis = (StringRedisConnection) connection;
+            for (String key : List.of(STATUS_KEY, MAKER_KEY_PREFIX + maker)) {
+                redis.hIncrBy(key, from.name(), -count);
+                redis.hIncrBy(key, from.name() + AMOUNT_SUFFIX, -amountValue);
+                redis.hIncrBy(key, to.name(), count);
+                redis.hIncrBy(key, to.name() + AMOUNT_SUFFIX, amountValue);
+            }
+            redis.hIncrBy(dayKey(), to.name(), count);
+            redis.hIncrBy(dayKey(), to.name() + AMOUNT_SUFFIX, amountValue);
+            redis.expire(dayKey(), DAY_KEY_TTL.getSeconds());
+            redis.incr(LIST_VERSION_KEY);
+            return null;
+        }), "transition", maker);
+    }
+
+    /**
+     * @param maker null để lấy thống kê của tất cả maker
+     * @param days số ngày gần nhất trong byDay (chỉ áp dụng khi maker = null)
+     * @return counters hiện tại
+     */
+    public TicketStatsDTO getStats(String maker, int days) {
+        try {
+            if (maker != null) {
+                return TicketStatsDTO.builder()
+                        .maker(maker)
+                        .byStatus(toTotals(stringRedisTemplate.<String, String>opsForHash()
+                                .entries(MAKER_KEY_PREFIX + maker)))
+                        .build();
+            }
+
+            List<String> dayKeys = new ArrayList<>(days);
+            LocalDate today = LocalDate.now();
+            for (int i = 0; i < days; i++) {
+                dayKeys.add(today.minusDays(i).toString());
+            }
+            List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection redis = (StringRedisConnection) connection;
+                redis.hGetAll(STATUS_KEY);
+                dayKeys.forEach(day -> redis.hGetAll(DAY_KEY_PREFIX + day));
+                return null;
+            });
+            Map<String, Map<TicketStatus, TicketStatsDTO.StatusTotals>> byDay = new LinkedHashMap<>();
+            for (int i = 0; i < dayKeys.size(); i++) {
+                byDay.put(dayKeys.get(i), toTotals(results.get(i + 1)));
+            }
+            return TicketStatsDTO.builder()
+                    .byStatus(toTotals(results.get(0)))
+                    .byDay(byDay)
+                    .build();
+        } catch (Exception e) {
+            log.error("Error reading ticket stats from Redis: maker={}", maker, e);
+            throw new RuntimeException("Ticket stats are temporarily unavailable");
+        }
+    }
+
+    /**
+     * @return list version hiện tại ("0" khi chưa có thao tác ghi nào), null nếu không đọc được Redis
+     */
+    public String getListVersion() {
+        try {
+            String version = stringRedisTemplate.opsForValue().get(LIST_VERSION_KEY);
+            return version != null ? version : "0";
+        } catch (Exception e) {
+            log.error("Error reading ticket list version from Redis", e);
+            return null;
+        }
+    }
+
+    /**
+     * Tính lại counter theo trạng thái và theo maker từ SQL (xem giới hạn ở Javadoc của class)
+     * Chỉ một node chạy mỗi lần (lock SET NX), counter theo ngày không được reconcile
+     * Đồng thời tăng list version để ETag cũ (nếu có lần INCR bị lỗi) hết hiệu lực sau tối đa một chu kỳ
+     */
+    @Scheduled(fixedDelayString = "${ticket.stats.reconcile-interval:PT15M}",
+            initialDelayString = "${ticket.stats.reconcile-initial-delay:PT1M}")
+    public void reconcile() {
+        try {
+            Boolean locked = stringRedisTemplate.opsForValue()
+                    .setIfAbsent(RECONCILE_LOCK_KEY, "1", Duration.ofMinutes(5));
+            if (!Boolean.TRUE.equals(locked)) {
+                return;
+            }
+            Map<String, Map<String, String>> hashes = new HashMap<>();
+            jdbcTemplate.query("SELECT maker_username, status, COUNT(*) AS total, COALESCE(SUM(amount), 0) AS amount " +
+                    "FROM tickets GROUP BY maker_username, status", rs -> {
+                String maker = rs.getString("maker_username");
+                String status = rs.getString("status");
+                long total = rs.getLong("total");
+                BigDecimal amount = rs.getBigDecimal("amount");
+                addTotals(hashes.computeIfAbsent(STATUS_KEY, k -> new HashMap<>()), status, total, amount);
+                if (maker != null) {
+                    addTotals(hashes.computeIfAbsent(MAKER_KEY_PREFIX + maker, k -> new HashMap<>()),
+                            status, total, amount);
+                }
+            });
+            // Ghi vào key tạm rồi RENAME để reader không thấy hash đang ghi dở
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection redis = (StringRedisConnection) connection;
+                hashes.forEach((key, fields) -> {
+                    String tmpKey = key + ":reconcile";
+                    redis.del(tmpKey);
+                    redis.hMSet(tmpKey, fields);
+                    redis.rename(tmpKey, key);
+                });
+                redis.incr(LIST_VERSION_KEY);
+                return null;
+            });
+            log.info("Reconciled ticket counters: keys={}", hashes.size());
+        } catch (Exception e) {
+            log.error("Error reconciling ticket counters", e);
+        }
+    }
+
+    private static void addTotals(Map<String, String> hash, String status, long total, BigDecimal amount) {
+        long count = Long.parseLong(hash.getOrDefault(status, "0")) + total;
+        long sum = Long.parseLong(hash.getOrDefault(status + AMOUNT_SUFFIX, "0")) + toMinorUnits(amount);
+        hash.put(status, String.valueOf(count));
+        hash.put(status + AMOUNT_SUFFIX, String.valueOf(sum));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<TicketStatus, TicketStatsDTO.StatusTotals> toTotals(Object hash) {
+        Map<TicketStatus, TicketStatsDTO.StatusTotals> totals = new EnumMap<>(TicketStatus.class);
+        for (TicketStatus status : TicketStatus.values()) {
+            totals.put(status, new TicketStatsDTO.StatusTotals(0, BigDecimal.ZERO));
+        }
+        if (!(hash instanceof Map)) {
+            return totals;
+        }
+        ((Map<Object, Object>) hash).forEach((field, value) -> {
+            String name = String.valueOf(field);
+            boolean isAmount = name.endsWith(AMOUNT_SUFFIX);
+            String statusName = isAmount ? name.substring(0, name.length() - AMOUNT_SUFFIX.length()) : name;
+            TicketStatsDTO.StatusTotals entry;
+            try {
+                entry = totals.get(TicketStatus.valueOf(statusName));
+            } catch (IllegalArgumentException e) {
+                return;
+            }
+            if (isAmount) {
+                entry.setAmount(BigDecimal.valueOf(Long.parseLong(String.valueOf(value)), AMOUNT_SCALE));
+            } else {
+                entry.setCount(Long.parseLong(String.valueOf(value)));
+            }
+        });
+        return totals;
+    }
+
+    private static long toMinorUnits(BigDecimal amount) {
+        return amount != null ? amount.setScale(AMOUNT_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact() : 0;
+    }
+
+    private static String dayKey() {
+        return DAY_KEY_PREFIX + LocalDate.now();
+    }
+
+    /**
+     * Chạy sau khi transaction hiện tại commit (chạy ngay nếu không có transaction)
+     * Lỗi Redis chỉ được log, sai lệch sẽ được sửa ở lần reconcile tiếp theo
+     */
+    private void afterCommit(Runnable action, String operation, String maker) {
+        Runnable guarded = () -> {
+            try {
+                action.run();
+            } catch (Exception e) {
+                log.error("Error updating ticket counters: operation={}, maker={}", operation, maker, e);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    guarded.run();
+                }
+            });
+        } else {
+            guarded.run();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.keycloak.service;
+
+import com.example.keycloak.config.TwoLevelCacheProperties;
+import com.example.keycloak.dto.TicketCursor;
+import com.example.keycloak.dto.TicketTimeline;
+import com.example.keycloak.dto.TicketTimelineEntry;
+import com.example.keycloak.entity.AuditLog;
+import com.example.keycloak.repository.AuditLogRepository;
+import com.example.keycloak.repository.TicketRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Ticket Timeline Service
+ * Lịch sử thao tác của một ticket, đọc từ audit_log qua index (entity_type, entity_id, timestamp)
+ *
+ * - Keyset pagination theo (timestamp, id), cũ nhất trước
+ * - Trang đầu (size mặc định) được cache local (ticket.timeline.cache.*), bị xóa sau khi
+ *   có audit log mới của ticket được commit; node khác được báo qua invalidation channel của L1 cache
+ *   (cùng format với TwoLevelCacheManager: nodeId|EVICT|ticket-timeline|id1,id2,...)
+ */
+@Slf4j
+@Service
+public class TicketTimelineService implements MessageListener {
+
+    private static final String ENTITY_TYPE = "TICKET";
+    private static final String CACHE_NAME = "ticket-timeline";
+    private static final String OP_EVICT = "EVICT";
+
+    private final AuditLogRepository auditLogRepository;
+    private final TicketRepository ticketRepository;
+    // null khi tắt cache
+    private final Cache<Long, TicketTimeline> firstPages;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final String invalidationChannel;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Value("${ticket.pagination.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${ticket.pagination.max-size:200}")
+    private int maxPageSize;
+
+    public TicketTimelineService(AuditLogRepository auditLogRepository, TicketRepository ticketRepository,
+                                 StringRedisTemplate stringRedisTemplate,
+                                 @Qualifier("cacheInvalidationListenerContainer")
+                                 RedisMessageListenerContainer listenerContainer,
+                                 TwoLevelCacheProperties l1Properties,
+                                 @Value("${ticket.timeline.cache.enabled:true}") boolean cacheEnabled,
+                                 @Value("${ticket.timeline.cache.maximum-size:1000}") long cacheMaximumSize,
+                                 @Value("${ticket.timeline.cache.ttl:PT5M}") Duration cacheTtl) {
+        this.auditLogRepository = auditLogRepository;
+        this.ticketRepository = ticketRepository;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.invalidationChannel = l1Properties.getInvalidationChannel();
+        this.firstPages = cacheEnabled
+                ? Caffeine.newBuilder().maximumSize(cacheMaximumSize).expireAfterWrite(cacheTtl).build()
+                : null;
+    }
+
+    @PostConstruct
+    public void listen() {
+        if (firstPages != null) {
+            listenerContainer.addMessageListener(this, new ChannelTopic(invalidationChannel));
+        }
+    }
+
+    /**
+     * @param ticketId the ticket id
+     * @param cursor cursor của trang trước, null cho trang đầu
+     * @param size page size, null để dùng mặc định
+     * @return các thao tác trên ticket, cũ nhất trước
+     */
+    @Transactional(readOnly = true)
+    public TicketTimeline getTimeline(Long ticketId, String cursor, Integer size) {
+        boolean cacheable = firstPages != null && cursor == null && size == null;
+        if (cacheable) {
+            TicketTimeline cached = firstPages.getIfPresent(ticketId);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        int pageSize = size == null ? defaultPageSize : size;
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        Pageable page = PageRequest.of(0, Math.min(pageSize, maxPageSize));
+        String entityId = String.valueOf(ticketId);
+        List<AuditLog> entries;
+        if (cursor == null) {
+            entries = auditLogRepository.findTimeline(ENTITY_TYPE, entityId, page);
+            if (entries.isEmpty() && !ticketRepository.existsById(ticketId)) {
+                throw new RuntimeException("Ticket not found with id: " + ticketId);
+            }
+        } else {
+            TicketCursor after = TicketCursor.decode(cursor);
+            entries = auditLogRepository.findTimelineAfter(ENTITY_TYPE, entityId, after.getTimestamp(),
+                    after.getId(), page);
+        }
+
+        String nextCursor = null;
+        if (entries.size() == page.getPageSize()) {
+            AuditLog last = entries.get(entries.size() - 1);
+            nextCursor = new TicketCursor(last.getTimestamp(), last.getId()).encode();
+        }
+        TicketTimeline timeline = TicketTimeline.builder()
+                .items(entries.stream().map(TicketTimelineService::toEntry).collect(Collectors.toList()))
+                .nextCursor(nextCursor)
+                .build();
+        if (cacheable) {
+            firstPages.put(ticketId, timeline);
+        }
+        return timeline;
+    }
+
+    /**
+     * Xóa timeline đã cache sau khi transaction hiện tại commit (ngay lập tức nếu không có transaction)
+     * @param ticketIds ticket có audit log mới
+     */
+    public void evictAfterCommit(Collection<Long> ticketIds) {
+        if (firstPages == null || ticketIds.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(ticketIds);
+                }
+            });
+        } else {
+            evict(ticketIds);
+        }
+    }
+
+    /**
+     * Nhận evict từ các node khác, bỏ qua message của cache khác và của chính node này
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 4);
+        if (parts.length < 4 || nodeId.equals(parts[0]) || !OP_EVICT.equals(parts[1])
+                || !CACHE_NAME.equals(parts[2])) {
+            return;
+        }
+        try {
+            firstPages.invalidateAll(Arrays.stream(parts[3].split(","))
+                    .map(Long::valueOf)
+                    .collect(Collectors.toList()));
+        } catch (NumberFormatException e) {
+            log.warn("Invalid timeline invalidation message: {}", parts[3]);
+        }
+    }
+
+    private void evict(Collection<Long> ticketIds) {
+        firstPages.invalidateAll(ticketIds);
+        String ids = ticketIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+        try {
+            stringRedisTemplate.convertAndSend(invalidationChannel,
+                    String.join("|", nodeId, OP_EVICT, CACHE_NAME, ids));
+        } catch (Exception e) {
+            // Trang đầu đã cache trên node khác sẽ tự hết hạn theo TTL
+            log.error("Error publishing timeline invalidation: tickets={}", ids, e);
+        }
+    }
+
+    private static TicketTimelineEntry toEntry(AuditLog auditLog) {
+        return TicketTimelineEntry.builder()
+                .id(auditLog.getId())
+                .action(auditLog.getAction())
+                .userId(auditLog.getUserId())
+                .details(auditLog.getDetails())
+                .timestamp(auditLog.getTimestamp())
+                .build();
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.keycloak.service.redis;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Redis Auto Batcher
+ * Gom các lệnh GET đơn lẻ từ nhiều thread trong một khoảng thời gian ngắn (window)
+ * thành một lệnh MGET duy nhất
+ *
+ * - Batch được flush khi hết window hoặc khi đủ maxBatchSize keys
+ * - Các request cùng key trong một batch chỉ được gửi một lần
+ */
+@Slf4j
+public class RedisAutoBatcher {
+
+    private final Function<List<String>, Map<String, Object>> loader;
+    private final long windowMicros;
+    private final int maxBatchSize;
+
+    private final Queue<PendingGet> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "redis-auto-batcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param loader function thực hiện MGET cho danh sách keys, trả về map key -> value;
+     *               phải ném exception khi lỗi (không trả về map rỗng) để get() không báo nhầm là miss
+     * @param window thời gian gom request trước khi flush
+     * @param maxBatchSize số keys tối đa trong một batch
+     */
+    public RedisAutoBatcher(Function<List<String>, Map<String, Object>> loader, Duration window, int maxBatchSize) {
+        this.loader = loader;
+        this.windowMicros = Math.max(1, TimeUnit.NANOSECONDS.toMicros(window.toNanos()));
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Đăng ký một GET vào batch hiện tại
+     * @param key the key
+     * @return future hoàn thành khi batch chứa key được flush
+     */
+    public CompletableFuture<Object> get(String key) {
+        PendingGet request = new PendingGet(key);
+        pending.add(request);
+
+        if (pendingCount.incrementAndGet() >= maxBatchSize) {
+            scheduler.execute(this::flush);
+        } else if (flushScheduled.compareAndSet(false, true)) {
+            scheduler.schedule(this::flush, windowMicros, TimeUnit.MICROSECONDS);
+        }
+        return request.future;
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+
+        List<PendingGet> batch = new ArrayList<>();
+        PendingGet request;
+        while (batch.size() < maxBatchSize && (request = pending.poll()) != null) {
+            batch.add(request);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        pendingCount.addAndGet(-batch.size());
+
+        // Vẫn còn request chưa được xử lý (batch bị giới hạn bởi maxBatchSize)
+        if (pendingCount.get() > 0 && flushScheduled.compareAndSet(false, true)) {
+            scheduler.execute(this::flush);
+        }
+
+        LinkedHashSet<String> keys = new LinkedHashSet<>();
+        batch.forEach(r -> keys.add(r.key));
+        try {
+            Map<String, Object> values = loader.apply(new ArrayList<>(keys));
+            batch.forEach(r -> r.future.complete(values.get(r.key)));
+            log.debug("Flushed Redis auto batch: requests={}, keys={}", batch.size(), keys.size());
+        } catch (Exception e) {
+            batch.forEach(r -> r.future.completeExceptionally(e));
+        }
+    }
+
+    /**
+     * Dừng scheduler, các request còn lại được flush ngay
+     */
+    public void shutdown() {
+        scheduler.execute(this::flush);
+        scheduler.shutdown();
+    }
+
+    private static final class PendingGet {
+        private final String key;
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+
+        private PendingGet(String key) {
+            this.key = key;
+        }
+    }
+}
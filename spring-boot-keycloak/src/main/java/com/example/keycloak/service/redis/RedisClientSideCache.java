@@ -0,0 +1,254 @@
+package com.example.keycloak.service.redis;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.RedisChannelHandler;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.TrackingArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.push.PushMessage;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.protocol.ProtocolVersion;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.SocketAddress;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Redis Client-Side Cache
+ * Cache local cho các key đọc nhiều, hiếm thay đổi (role mapping, feature config...)
+ * dựa trên CLIENT TRACKING của Redis 6 (RESP3)
+ *
+ * - Chỉ áp dụng cho key có prefix khai báo trong redis.client-side-caching.prefixes
+ * - Tracking ở chế độ BCAST theo prefix: Redis push "invalidate" khi key thay đổi,
+ *   kể cả khi được ghi từ node khác hoặc từ chính node này
+ * - Dùng một connection riêng (không qua pool) vì tracking gắn với connection
+ * - Mất kết nối: xóa toàn bộ cache local và đọc thẳng Redis cho đến khi tracking được bật lại
+ */
+@Slf4j
+@Component
+public class RedisClientSideCache {
+
+    // Placeholder đặt vào cache trước khi GET, invalidate đến trong lúc GET sẽ xóa placeholder
+    // nên value cũ không bị ghi đè vào cache
+    private static final Object PENDING = new Object();
+    // Key không tồn tại cũng được cache (BCAST tracking báo cả khi key được tạo mới)
+    private static final Object MISSING = new Object();
+
+    private final RedisProperties redisProperties;
+    private final RedisSerializer<?> valueSerializer;
+
+    @Value("${redis.client-side-caching.enabled:false}")
+    private boolean enabled;
+
+    @Value("${redis.client-side-caching.prefixes:}")
+    private List<String> prefixes;
+
+    @Value("${redis.client-side-caching.maximum-size:10000}")
+    private long maximumSize;
+
+    private final AtomicBoolean trackingActive = new AtomicBoolean();
+    private Cache<String, Object> cache;
+    private RedisClient client;
+    private StatefulRedisConnection<String, byte[]> connection;
+
+    public RedisClientSideCache(RedisProperties redisProperties, RedisTemplate<String, Object> redisTemplate) {
+        this.redisProperties = redisProperties;
+        // Cùng serializer với RedisTemplate để đọc được value do RedisService ghi
+        this.valueSerializer = redisTemplate.getValueSerializer();
+    }
+
+    @PostConstruct
+    public void init() {
+        prefixes = prefixes.stream()
+                .filter(StringUtils::hasText)
+                .collect(Collectors.toList());
+        if (!enabled || prefixes.isEmpty()) {
+            return;
+        }
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+        try {
+            client = RedisClient.create(redisUri());
+            client.setOptions(ClientOptions.builder()
+                    .protocolVersion(ProtocolVersion.RESP3)
+                    .build());
+            client.addListener(new TrackingConnectionListener());
+            connection = client.connect(RedisCodec.of(StringCodec.UTF8, ByteArrayCodec.INSTANCE));
+            connection.addListener(this::onPushMessage);
+            connection.sync().clientTracking(trackingArgs());
+            trackingActive.set(true);
+            log.info("Redis client-side caching enabled: prefixes={}, maximumSize={}", prefixes, maximumSize);
+        } catch (Exception e) {
+            // Redis không hỗ trợ RESP3/tracking hoặc chưa sẵn sàng: RedisService đọc như bình thường
+            log.warn("Could not enable Redis client-side caching: {}", e.getMessage());
+            shutdown();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        trackingActive.set(false);
+        if (connection != null) {
+            connection.close();
+            connection = null;
+        }
+        if (client != null) {
+            client.shutdown();
+            client = null;
+        }
+    }
+
+    /**
+     * @param key the key
+     * @return true nếu key thuộc prefix được cache local
+     */
+    public boolean isTracked(String key) {
+        if (connection == null) {
+            return false;
+        }
+        for (String prefix : prefixes) {
+            if (key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Đọc key từ cache local, miss thì GET từ Redis và cache lại
+     * @param key the key (phải thỏa {@link #isTracked(String)})
+     * @return the value, or null if not found
+     */
+    public Object get(String key) {
+        if (!trackingActive.get()) {
+            return valueSerializer.deserialize(connection.sync().get(key));
+        }
+
+        Object cached = cache.getIfPresent(key);
+        if (cached != null && cached != PENDING) {
+            return cached == MISSING ? null : cached;
+        }
+
+        // Chỉ thread đặt được placeholder mới ghi kết quả vào cache
+        boolean owner = cached == null && cache.asMap().putIfAbsent(key, PENDING) == null;
+        Object value;
+        try {
+            value = valueSerializer.deserialize(connection.sync().get(key));
+        } catch (RuntimeException e) {
+            if (owner) {
+                cache.asMap().remove(key, PENDING);
+            }
+            throw e;
+        }
+        if (owner) {
+            if (trackingActive.get()) {
+                cache.asMap().replace(key, PENDING, value != null ? value : MISSING);
+            } else {
+                cache.asMap().remove(key, PENDING);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @return số key đang được cache local
+     */
+    public long size() {
+        return cache != null ? cache.estimatedSize() : 0;
+    }
+
+    private void onPushMessage(PushMessage message) {
+        if (!"invalidate".equals(message.getType())) {
+            return;
+        }
+        List<Object> content = message.getContent(StringCodec.UTF8::decodeKey);
+        Object keys = content.size() > 1 ? content.get(1) : null;
+        if (keys instanceof List) {
+            for (Object key : (List<?>) keys) {
+                cache.invalidate(String.valueOf(key));
+            }
+        } else {
+            // FLUSHALL/FLUSHDB: Redis gửi invalidate với keys = null
+            cache.invalidateAll();
+        }
+    }
+
+    private TrackingArgs trackingArgs() {
+        return TrackingArgs.Builder.enabled()
+                .bcast()
+                .prefixes(prefixes.toArray(new String[0]));
+    }
+
+    private RedisURI redisUri() {
+        RedisURI.Builder builder = RedisURI.builder()
+                .withHost(redisProperties.getHost())
+                .withPort(redisProperties.getPort())
+                .withDatabase(redisProperties.getDatabase())
+                .withSsl(redisProperties.isSsl());
+        if (redisProperties.getTimeout() != null) {
+            builder.withTimeout(redisProperties.getTimeout());
+        }
+        if (StringUtils.hasText(redisProperties.getPassword())) {
+            if (StringUtils.hasText(redisProperties.getUsername())) {
+                builder.withAuthentication(redisProperties.getUsername(), redisProperties.getPassword());
+            } else {
+                builder.withPassword(redisProperties.getPassword().toCharArray());
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Tracking không tồn tại qua reconnect: xóa cache khi mất kết nối và bật lại tracking khi kết nối lại
+     */
+    private class TrackingConnectionListener implements RedisConnectionStateListener {
+
+        @Override
+        public void onRedisConnected(RedisChannelHandler<?, ?> channelHandler, SocketAddress socketAddress) {
+            StatefulRedisConnection<String, byte[]> current = connection;
+            if (current == null || current != channelHandler) {
+                // Lần connect đầu tiên: tracking được bật trong init()
+                return;
+            }
+            current.async().clientTracking(trackingArgs()).whenComplete((result, error) -> {
+                if (error != null) {
+                    log.error("Error re-enabling Redis client tracking", error);
+                    return;
+                }
+                cache.invalidateAll();
+                trackingActive.set(true);
+                log.info("Redis client tracking re-enabled after reconnect");
+            });
+        }
+
+        @Override
+        public void onRedisDisconnected(RedisChannelHandler<?, ?> channelHandler) {
+            if (channelHandler == connection) {
+                trackingActive.set(false);
+                cache.invalidateAll();
+            }
+        }
+
+        @Override
+        public void onRedisExceptionCaught(RedisChannelHandler<?, ?> channelHandler, Throwable cause) {
+            // Lỗi connection được xử lý qua disconnect/reconnect
+        }
+    }
+}
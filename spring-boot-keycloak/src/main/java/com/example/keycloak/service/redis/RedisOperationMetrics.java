@@ -0,0 +1,127 @@
+package com.example.keycloak.service.redis;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Redis Operation Metrics
+ * Đo thời gian và đếm lỗi cho từng thao tác của RedisService
+ *
+ * - redis.operation (timer): tag operation, namespace (phần trước dấu ':' đầu tiên của key), outcome
+ * - redis.operation.errors (counter): tag operation, namespace, exception
+ * - Thao tác chậm hơn redis.metrics.slow-threshold được log WARN
+ * - Theo dõi chuỗi lỗi liên tiếp cho {@link RedisOperationsHealthIndicator}
+ */
+@Slf4j
+@Component
+public class RedisOperationMetrics {
+
+    private static final String NO_NAMESPACE = "none";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${redis.metrics.slow-threshold:50ms}")
+    private Duration slowThreshold;
+
+    // Số lỗi liên tiếp kể từ lần thành công gần nhất và thời điểm lỗi đầu tiên của chuỗi
+    private final AtomicLong consecutiveErrors = new AtomicLong();
+    private final AtomicLong failingSinceMillis = new AtomicLong();
+    private volatile String lastError;
+
+    public RedisOperationMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Thao tác Redis có thể throw checked exception (ví dụ chờ auto-batching)
+     */
+    @FunctionalInterface
+    public interface RedisOperation<T> {
+        T execute() throws Exception;
+    }
+
+    /**
+     * Chạy và đo một thao tác, lỗi được ghi nhận rồi throw lại cho caller xử lý
+     * @param operation tên thao tác (get, set, multiGet...)
+     * @param key key (hoặc key đầu tiên) để lấy namespace, có thể null
+     * @param action the operation
+     * @param <T> kiểu kết quả
+     * @return kết quả của thao tác
+     */
+    public <T> T record(String operation, String key, RedisOperation<T> action) throws Exception {
+        String namespace = namespace(key);
+        long start = System.nanoTime();
+        try {
+            T result = action.execute();
+            onSuccess(operation, namespace, key, System.nanoTime() - start);
+            return result;
+        } catch (Exception e) {
+            onError(operation, namespace, System.nanoTime() - start, e);
+            throw e;
+        }
+    }
+
+    public long getConsecutiveErrors() {
+        return consecutiveErrors.get();
+    }
+
+    /**
+     * @return thời điểm bắt đầu chuỗi lỗi hiện tại (epoch millis), 0 nếu không có lỗi
+     */
+    public long getFailingSinceMillis() {
+        return failingSinceMillis.get();
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    private void onSuccess(String operation, String namespace, String key, long elapsedNanos) {
+        timer(operation, namespace, "success").record(elapsedNanos, TimeUnit.NANOSECONDS);
+        if (elapsedNanos > slowThreshold.toNanos()) {
+            log.warn("Slow Redis operation: operation={}, key={}, took={}ms",
+                    operation, key, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        }
+        if (consecutiveErrors.get() > 0) {
+            consecutiveErrors.set(0);
+            failingSinceMillis.set(0);
+        }
+    }
+
+    private void onError(String operation, String namespace, long elapsedNanos, Exception e) {
+        timer(operation, namespace, "error").record(elapsedNanos, TimeUnit.NANOSECONDS);
+        meterRegistry.counter("redis.operation.errors",
+                "operation", operation,
+                "namespace", namespace,
+                "exception", e.getClass().getSimpleName()).increment();
+        consecutiveErrors.incrementAndGet();
+        failingSinceMillis.compareAndSet(0, System.currentTimeMillis());
+        lastError = operation + ": " + e.getClass().getSimpleName() + ": " + e.getMessage();
+    }
+
+    private Timer timer(String operation, String namespace, String outcome) {
+        return Timer.builder("redis.operation")
+                .tag("operation", operation)
+                .tag("namespace", namespace)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Namespace của key: phần trước dấu ':' đầu tiên (user:123 -> user)
+     */
+    static String namespace(String key) {
+        if (key == null) {
+            return NO_NAMESPACE;
+        }
+        int separator = key.indexOf(':');
+        return separator > 0 ? key.substring(0, separator) : NO_NAMESPACE;
+    }
+}
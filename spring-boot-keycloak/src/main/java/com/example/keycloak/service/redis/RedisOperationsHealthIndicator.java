@@ -0,0 +1,49 @@
+package com.example.keycloak.service.redis;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Redis Operations Health Indicator
+ * DOWN khi các thao tác RedisService lỗi liên tục (không chỉ dựa vào PING)
+ *
+ * - Cần ít nhất redis.health.error-threshold lỗi liên tiếp
+ *   và chuỗi lỗi kéo dài hơn redis.health.error-duration
+ * - Một thao tác thành công sẽ reset chuỗi lỗi
+ */
+@Component
+@RequiredArgsConstructor
+public class RedisOperationsHealthIndicator implements HealthIndicator {
+
+    private final RedisOperationMetrics metrics;
+
+    @Value("${redis.health.error-threshold:20}")
+    private long errorThreshold;
+
+    @Value("${redis.health.error-duration:30s}")
+    private Duration errorDuration;
+
+    @Override
+    public Health health() {
+        long errors = metrics.getConsecutiveErrors();
+        long failingSince = metrics.getFailingSinceMillis();
+        if (errors == 0 || failingSince == 0) {
+            return Health.up().build();
+        }
+
+        long failingMillis = System.currentTimeMillis() - failingSince;
+        Health.Builder builder = errors >= errorThreshold && failingMillis >= errorDuration.toMillis()
+                ? Health.down()
+                : Health.up();
+        return builder
+                .withDetail("consecutiveErrors", errors)
+                .withDetail("failingForMs", failingMillis)
+                .withDetail("lastError", String.valueOf(metrics.getLastError()))
+                .build();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.keycloak.service.redis;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Redis Script Registry
+ * Quản lý các Lua script chạy phía Redis server
+ *
+ * - Script được SCRIPT LOAD một lần lúc khởi động, sau đó gọi bằng EVALSHA
+ *   (RedisTemplate tự fallback sang EVAL nếu Redis bị restart và mất script cache)
+ * - Built-in scripts nằm trong classpath:scripts/redis/*.lua
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RedisScriptRegistry {
+
+    public static final String COUNTER_WITH_TTL = "counter_with_ttl";
+    public static final String COMPARE_AND_SET = "compare_and_set";
+    public static final String SLIDING_WINDOW_COUNT = "sliding_window_count";
+    public static final String BOUNDED_LIST_PUSH = "bounded_list_push";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final Map<String, RedisScript<?>> scripts = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        register(COUNTER_WITH_TTL, fromClasspath(COUNTER_WITH_TTL, Long.class));
+        register(COMPARE_AND_SET, fromClasspath(COMPARE_AND_SET, Long.class));
+        register(SLIDING_WINDOW_COUNT, fromClasspath(SLIDING_WINDOW_COUNT, Long.class));
+        register(BOUNDED_LIST_PUSH, fromClasspath(BOUNDED_LIST_PUSH, Long.class));
+    }
+
+    /**
+     * Đăng ký script và SCRIPT LOAD lên Redis
+     * @param name tên script
+     * @param script the script
+     */
+    public void register(String name, RedisScript<?> script) {
+        scripts.put(name, script);
+        load(name, script);
+    }
+
+    /**
+     * @param name tên script
+     * @param <T> kiểu kết quả
+     * @return the script
+     */
+    @SuppressWarnings("unchecked")
+    public <T> RedisScript<T> get(String name) {
+        RedisScript<?> script = scripts.get(name);
+        if (script == null) {
+            throw new IllegalArgumentException("Redis script not registered: " + name);
+        }
+        return (RedisScript<T>) script;
+    }
+
+    private void load(String name, RedisScript<?> script) {
+        try {
+            String sha = redisTemplate.execute((RedisCallback<String>) (RedisConnection connection) ->
+                    connection.scriptLoad(script.getScriptAsString().getBytes(StandardCharsets.UTF_8)));
+            log.info("Loaded Redis script: name={}, sha={}", name, sha);
+        } catch (Exception e) {
+            // Redis chưa sẵn sàng: EVALSHA sẽ fallback sang EVAL ở lần gọi đầu tiên
+            log.warn("Could not preload Redis script: name={}, error={}", name, e.getMessage());
+        }
+    }
+
+    private static <T> RedisScript<T> fromClasspath(String name, Class<T> resultType) {
+        DefaultRedisScript<T> script = new DefaultRedisScript<>();
+        script.setLocation(new ClassPathResource("scripts/redis/" + name + ".lua"));
+        script.setResultType(resultType);
+        return script;
+    }
+}
@@ -0,0 +1,14 @@
+-- Thêm value vào đầu list và giữ tối đa maxLength phần tử
+-- KEYS[1]: list key
+-- ARGV[1]: value (serialized)
+-- ARGV[2]: maxLength
+-- ARGV[3]: TTL (ms), 0 nếu không hết hạn
+-- Trả về độ dài list sau khi trim
+local maxLength = tonumber(ARGV[2])
+redis.call('LPUSH', KEYS[1], ARGV[1])
+redis.call('LTRIM', KEYS[1], 0, maxLength - 1)
+local ttl = tonumber(ARGV[3])
+if ttl > 0 then
+    redis.call('PEXPIRE', KEYS[1], ttl)
+end
+return redis.call('LLEN', KEYS[1])
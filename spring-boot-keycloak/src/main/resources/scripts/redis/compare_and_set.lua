@@ -0,0 +1,20 @@
+-- Đặt value mới nếu value hiện tại bằng expected
+-- KEYS[1]: key
+-- ARGV[1]: expected value (serialized), chuỗi rỗng nghĩa là key chưa tồn tại
+-- ARGV[2]: new value (serialized)
+-- ARGV[3]: TTL (ms), 0 nếu không hết hạn
+-- Trả về 1 nếu đã set, 0 nếu value hiện tại khác expected
+local current = redis.call('GET', KEYS[1])
+if current == false then
+    current = ''
+end
+if current ~= ARGV[1] then
+    return 0
+end
+local ttl = tonumber(ARGV[3])
+if ttl > 0 then
+    redis.call('SET', KEYS[1], ARGV[2], 'PX', ttl)
+else
+    redis.call('SET', KEYS[1], ARGV[2])
+end
+return 1
@@ -0,0 +1,10 @@
+-- Tăng counter và đặt TTL trong cùng một lệnh
+-- KEYS[1]: counter key
+-- ARGV[1]: delta
+-- ARGV[2]: TTL (ms), chỉ đặt khi key chưa có TTL (key mới tạo)
+local value = redis.call('INCRBY', KEYS[1], ARGV[1])
+local ttl = tonumber(ARGV[2])
+if ttl > 0 and redis.call('PTTL', KEYS[1]) < 0 then
+    redis.call('PEXPIRE', KEYS[1], ttl)
+end
+return value
@@ -0,0 +1,21 @@
+-- Đếm số request trong sliding window (sorted set theo timestamp)
+-- KEYS[1]: window key
+-- ARGV[1]: window (ms)
+-- ARGV[2]: member duy nhất cho request này
+-- ARGV[3]: limit
+-- Trả về số request tính cả request này; request chỉ được ghi nhận khi kết quả <= limit
+-- Thời gian lấy từ Redis (TIME) thay vì đồng hồ của từng app node để window giống nhau trên mọi node
+if redis.replicate_commands then
+    -- Redis < 5: cần replicate theo effects vì TIME không deterministic (Redis 7 luôn làm vậy)
+    redis.replicate_commands()
+end
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+local window = tonumber(ARGV[1])
+redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now - window)
+local count = redis.call('ZCARD', KEYS[1])
+if count < tonumber(ARGV[3]) then
+    redis.call('ZADD', KEYS[1], now, ARGV[2])
+end
+redis.call('PEXPIRE', KEYS[1], window)
+return count + 1
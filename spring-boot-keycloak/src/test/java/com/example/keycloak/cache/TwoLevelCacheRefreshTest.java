@@ -0,0 +1,116 @@
+package com.example.keycloak.cache;
+
+import com.example.keycloak.config.TwoLevelCacheProperties;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * XFetch: entry sắp hết hạn ở L2 được load lại ở background bằng CacheRefreshLoader,
+ * request vẫn nhận value hiện tại
+ * Redis được mock: lease luôn lấy được, TTL còn lại do test quyết định
+ */
+class TwoLevelCacheRefreshTest {
+
+    private static final String KEY = "user-1";
+
+    private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    private final ConcurrentMapCache l2 = new ConcurrentMapCache("users");
+    private final AtomicInteger loads = new AtomicInteger();
+    private CacheLoadCoordinator coordinator;
+
+    @AfterEach
+    void shutdown() {
+        coordinator.shutdown();
+    }
+
+    @Test
+    void entryNearExpiryIsRefreshedInBackground() throws Exception {
+        TwoLevelCache cache = cache(Duration.ofMillis(1), loader());
+        l2.put(KEY, "old");
+
+        assertThat(cache.get(KEY, () -> "from-request")).isEqualTo("old");
+        // Đã quá thời điểm hết hạn: now + gap >= expiry với mọi giá trị random
+        TimeUnit.MILLISECONDS.sleep(5);
+        assertThat(cache.get(KEY, () -> "from-request")).isEqualTo("old");
+
+        awaitRefreshed(cache);
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(l2.get(KEY).get()).isEqualTo("refreshed");
+    }
+
+    @Test
+    void entryFarFromExpiryIsNotRefreshed() throws Exception {
+        TwoLevelCache cache = cache(Duration.ofMinutes(30), loader());
+        l2.put(KEY, "old");
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(cache.get(KEY, () -> "from-request")).isEqualTo("old");
+        }
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertThat(loads.get()).isZero();
+    }
+
+    @Test
+    void cacheWithoutLoaderIsNotRefreshed() throws Exception {
+        TwoLevelCache cache = cache(Duration.ofMillis(1), null);
+        l2.put(KEY, "old");
+
+        cache.get(KEY, () -> "from-request");
+        TimeUnit.MILLISECONDS.sleep(5);
+        assertThat(cache.get(KEY, () -> "from-request")).isEqualTo("old");
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertThat(l2.get(KEY).get()).isEqualTo("old");
+    }
+
+    @SuppressWarnings("unchecked")
+    private TwoLevelCache cache(Duration remainingTtl, CacheRefreshLoader loader) {
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        when(redis.opsForValue()).thenReturn(values);
+        when(values.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
+        when(redis.getExpire(anyString(), eq(TimeUnit.MILLISECONDS))).thenReturn(remainingTtl.toMillis());
+
+        TwoLevelCacheProperties.Stampede properties = new TwoLevelCacheProperties.Stampede();
+        coordinator = new CacheLoadCoordinator(redis, properties, "node-1");
+        return new TwoLevelCache("users",
+                Caffeine.newBuilder().<String, TwoLevelCache.LocalEntry>build(),
+                l2, mock(CacheInvalidationPublisher.class), coordinator, () -> loader, 100);
+    }
+
+    private CacheRefreshLoader loader() {
+        return new CacheRefreshLoader() {
+            @Override
+            public String getCacheName() {
+                return "users";
+            }
+
+            @Override
+            public Object load(Object key) {
+                loads.incrementAndGet();
+                return "refreshed";
+            }
+        };
+    }
+
+    private static void awaitRefreshed(TwoLevelCache cache) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!"refreshed".equals(cache.get(KEY).get()) && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertThat(cache.get(KEY).get()).isEqualTo("refreshed");
+    }
+}
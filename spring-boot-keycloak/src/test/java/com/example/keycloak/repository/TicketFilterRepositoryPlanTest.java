@@ -0,0 +1,137 @@
+package com.example.keycloak.repository;
+
+import com.example.keycloak.dto.TicketCursor;
+import com.example.keycloak.dto.TicketFilter;
+import com.example.keycloak.dto.TicketStatus;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Query plan của GET /api/tickets/filter: mọi tổ hợp điều kiện (có và không có cursor) phải dùng index
+ * Schema được tạo từ entity (giống ddl-auto ở môi trường thật), dữ liệu đủ lớn để planner không chọn Seq Scan
+ * Bỏ qua khi không có Docker
+ */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class TicketFilterRepositoryPlanTest {
+
+    private static final int CRITERIA = 6;
+    private static final int ROWS = 200_000;
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    // Container dùng chung cho cả class nên chỉ seed một lần
+    private static boolean seeded;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    /**
+     * Mỗi bit của mask bật một điều kiện: status, maker, checker, amount, created, updated
+     */
+    static Stream<Integer> combinations() {
+        return IntStream.range(0, 1 << CRITERIA).boxed();
+    }
+
+    @ParameterizedTest(name = "criteria mask {0}")
+    @MethodSource("combinations")
+    void firstPageUsesIndex(int mask) {
+        assertNoSeqScan(filter(mask), null);
+    }
+
+    @ParameterizedTest(name = "criteria mask {0}, with cursor")
+    @MethodSource("combinations")
+    void nextPageUsesIndex(int mask) {
+        assertNoSeqScan(filter(mask), new TicketCursor(LocalDateTime.of(2024, 6, 5, 12, 0), 40_000L));
+    }
+
+    private void assertNoSeqScan(TicketFilter filter, TicketCursor cursor) {
+        seedOnce();
+        MapSqlParameterSource params = new MapSqlParameterSource("limit", 51);
+        String sql = TicketFilterRepository.buildQuery(filter, cursor, params);
+        List<String> plan = namedParameterJdbcTemplate.queryForList("EXPLAIN " + sql, params, String.class);
+        assertThat(String.join("\n", plan))
+                .as("plan of %s", sql)
+                .doesNotContain("Seq Scan on tickets");
+    }
+
+    private static TicketFilter filter(int mask) {
+        TicketFilter filter = new TicketFilter();
+        if ((mask & 1) != 0) {
+            filter.setStatus(TicketStatus.APPROVED);
+        }
+        if ((mask & 2) != 0) {
+            filter.setMaker("maker2");
+        }
+        if ((mask & 4) != 0) {
+            filter.setChecker("checker2");
+        }
+        if ((mask & 8) != 0) {
+            filter.setMinAmount(new BigDecimal("1000"));
+            filter.setMaxAmount(new BigDecimal("1100"));
+        }
+        if ((mask & 16) != 0) {
+            filter.setCreatedFrom(LocalDateTime.of(2024, 6, 1, 0, 0));
+            filter.setCreatedTo(LocalDateTime.of(2024, 6, 8, 0, 0));
+        }
+        if ((mask & 32) != 0) {
+            filter.setUpdatedFrom(LocalDateTime.of(2024, 6, 1, 0, 0));
+            filter.setUpdatedTo(LocalDateTime.of(2024, 6, 2, 0, 0));
+        }
+        return filter;
+    }
+
+    /**
+     * 200k ticket trải đều gần 2 năm: 5 status, 200 maker, 50 checker (chỉ ticket đã duyệt/từ chối)
+     */
+    private void seedOnce() {
+        if (seeded) {
+            return;
+        }
+        jdbcTemplate.update("INSERT INTO tickets (id, title, status, amount, maker_username, checker_username, " +
+                "created_at, updated_at, version) " +
+                "SELECT nextval('tickets_id_seq'), 'Ticket ' || g, " +
+                "(ARRAY['DRAFT', 'SUBMITTED', 'APPROVED', 'REJECTED', 'COMPLETED'])[1 + g % 5], " +
+                "(g * 7919 % 1000000) / 100.0, 'maker' || (g % 200), " +
+                "CASE WHEN g % 5 IN (2, 3) THEN 'checker' || (g % 50) END, " +
+                "timestamp '2024-01-01' + g * interval '5 minutes', " +
+                "timestamp '2024-01-01' + g * interval '5 minutes' + (g % 1000) * interval '1 minute', 0 " +
+                "FROM generate_series(1, ?) g", ROWS);
+        jdbcTemplate.execute("ANALYZE tickets");
+        seeded = true;
+    }
+}
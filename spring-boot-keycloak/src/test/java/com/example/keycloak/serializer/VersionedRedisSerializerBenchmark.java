@@ -0,0 +1,97 @@
+package com.example.keycloak.serializer;
+
+import com.example.keycloak.dto.TicketDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Throughput serialize/deserialize của JSON và binary (Smile) cho một TicketDTO và một trang List<TicketDTO>
+ * Không chạy cùng test thường (kết quả phụ thuộc máy và tải), chạy riêng:
+ * mvn test -Dtest=VersionedRedisSerializerBenchmark -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class VersionedRedisSerializerBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(VersionedRedisSerializerBenchmark.class);
+
+    private static final long WARMUP_NANOS = TimeUnit.SECONDS.toNanos(3);
+    private static final long MEASURE_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int MEASURE_ROUNDS = 5;
+    private static final int PAGE_SIZE = 50;
+
+    private final RedisTypeRegistry registry = new RedisTypeRegistry()
+            .register(10, TicketDTO.class)
+            .registerList(20, TicketDTO.class);
+    private final VersionedRedisSerializer json = new VersionedRedisSerializer(
+            VersionedRedisSerializerTest.jsonSerializer(), registry, VersionedRedisSerializer.Format.JSON);
+    private final VersionedRedisSerializer binary = new VersionedRedisSerializer(
+            VersionedRedisSerializerTest.jsonSerializer(), registry, VersionedRedisSerializer.Format.BINARY);
+
+    // Giữ kết quả để JIT không loại bỏ phần việc được đo
+    private long sink;
+
+    @Test
+    void ticket() {
+        compare("TicketDTO", VersionedRedisSerializerTest.ticket(1));
+    }
+
+    @Test
+    void page() {
+        compare("List<TicketDTO> x" + PAGE_SIZE, VersionedRedisSerializerTest.page(PAGE_SIZE));
+    }
+
+    private void compare(String payload, Object value) {
+        byte[] jsonBytes = json.serialize(value);
+        byte[] binaryBytes = binary.serialize(value);
+        assertThat(json.deserialize(binaryBytes)).isEqualTo(value);
+
+        double jsonWrite = opsPerSecond(() -> json.serialize(value).length);
+        double binaryWrite = opsPerSecond(() -> binary.serialize(value).length);
+        double jsonRead = opsPerSecond(() -> json.deserialize(jsonBytes).hashCode());
+        double binaryRead = opsPerSecond(() -> binary.deserialize(binaryBytes).hashCode());
+
+        log.info("{}: size json={} B, binary={} B", payload, jsonBytes.length, binaryBytes.length);
+        log.info("{}: serialize json={} ops/s, binary={} ops/s ({}x)",
+                payload, Math.round(jsonWrite), Math.round(binaryWrite), ratio(binaryWrite, jsonWrite));
+        log.info("{}: deserialize json={} ops/s, binary={} ops/s ({}x)",
+                payload, Math.round(jsonRead), Math.round(binaryRead), ratio(binaryRead, jsonRead));
+        assertThat(sink).isNotZero();
+    }
+
+    /**
+     * Warmup rồi lấy median của các vòng đo
+     */
+    private double opsPerSecond(IntSupplier operation) {
+        run(operation, WARMUP_NANOS);
+        double[] rounds = new double[MEASURE_ROUNDS];
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            long start = System.nanoTime();
+            long ops = run(operation, MEASURE_NANOS);
+            rounds[i] = ops * 1e9 / (System.nanoTime() - start);
+        }
+        Arrays.sort(rounds);
+        return rounds[MEASURE_ROUNDS / 2];
+    }
+
+    private long run(IntSupplier operation, long durationNanos) {
+        long deadline = System.nanoTime() + durationNanos;
+        long ops = 0;
+        while (System.nanoTime() < deadline) {
+            sink += operation.getAsInt();
+            ops++;
+        }
+        return ops;
+    }
+
+    private static String ratio(double value, double baseline) {
+        return String.format("%.2f", value / baseline);
+    }
+}
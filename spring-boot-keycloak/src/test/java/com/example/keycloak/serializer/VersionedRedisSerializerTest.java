@@ -0,0 +1,111 @@
+package com.example.keycloak.serializer;
+
+import com.example.keycloak.dto.TicketDTO;
+import com.example.keycloak.dto.TicketStatus;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * JSON và binary (Smile) cùng đọc được, và so sánh kích thước của hai format
+ * Throughput: xem {@link VersionedRedisSerializerBenchmark}
+ */
+class VersionedRedisSerializerTest {
+
+    private final RedisTypeRegistry registry = new RedisTypeRegistry()
+            .register(10, TicketDTO.class)
+            .registerList(20, TicketDTO.class);
+    private final VersionedRedisSerializer json =
+            new VersionedRedisSerializer(jsonSerializer(), registry, VersionedRedisSerializer.Format.JSON);
+    private final VersionedRedisSerializer binary =
+            new VersionedRedisSerializer(jsonSerializer(), registry, VersionedRedisSerializer.Format.BINARY);
+
+    @Test
+    void jsonIsWrittenWithoutHeader() {
+        byte[] bytes = json.serialize(ticket(1));
+
+        assertThat(bytes[0]).isEqualTo((byte) '{');
+        assertThat(binary.deserialize(bytes)).isEqualTo(ticket(1));
+    }
+
+    @Test
+    void registeredTypeIsWrittenAsBinary() {
+        byte[] bytes = binary.serialize(ticket(1));
+
+        assertThat(bytes[0]).isEqualTo(VersionedRedisSerializer.VERSION_BINARY);
+        assertThat(json.deserialize(bytes)).isEqualTo(ticket(1));
+    }
+
+    @Test
+    void listOfRegisteredTypeIsWrittenAsBinary() {
+        List<TicketDTO> page = page(50);
+        byte[] bytes = binary.serialize(page);
+
+        assertThat(bytes[0]).isEqualTo(VersionedRedisSerializer.VERSION_BINARY);
+        assertThat(json.deserialize(bytes)).isEqualTo(page);
+    }
+
+    @Test
+    void emptyOrMixedListFallsBackToJson() {
+        List<Object> mixed = new ArrayList<>(page(2));
+        mixed.add("other");
+
+        assertThat(binary.serialize(new ArrayList<>())[0]).isNotEqualTo(VersionedRedisSerializer.VERSION_BINARY);
+        assertThat(binary.serialize(mixed)[0]).isNotEqualTo(VersionedRedisSerializer.VERSION_BINARY);
+    }
+
+    @Test
+    void binaryIsSmallerThanJson() {
+        int jsonTicket = json.serialize(ticket(1)).length;
+        int binaryTicket = binary.serialize(ticket(1)).length;
+        int jsonPage = json.serialize(page(50)).length;
+        int binaryPage = binary.serialize(page(50)).length;
+
+        assertThat(binaryTicket).isLessThan(jsonTicket);
+        // JSON lặp lại @class và tên field cho từng phần tử, Smile chỉ ghi tên field một lần (back-reference)
+        assertThat(binaryPage).isLessThan(jsonPage);
+        assertThat((double) binaryPage / jsonPage).isLessThan((double) binaryTicket / jsonTicket);
+    }
+
+    /**
+     * Giống RedisConfig#createJsonSerializer, thêm module java.time cho LocalDateTime của TicketDTO
+     */
+    static GenericJackson2JsonRedisSerializer jsonSerializer() {
+        ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+        mapper.activateDefaultTyping(
+                LaissezFaireSubTypeValidator.instance,
+                ObjectMapper.DefaultTyping.NON_FINAL,
+                JsonTypeInfo.As.PROPERTY
+        );
+        return new GenericJackson2JsonRedisSerializer(mapper);
+    }
+
+    static List<TicketDTO> page(int size) {
+        return IntStream.rangeClosed(1, size).mapToObj(VersionedRedisSerializerTest::ticket)
+                .collect(Collectors.toList());
+    }
+
+    static TicketDTO ticket(int id) {
+        return TicketDTO.builder()
+                .id((long) id)
+                .title("Thanh toán hóa đơn " + id)
+                .description("Chuyển khoản cho nhà cung cấp theo hợp đồng số " + id)
+                .status(TicketStatus.SUBMITTED)
+                .amount(new BigDecimal("1500000.00"))
+                .maker("maker" + id % 10)
+                .createdAt(LocalDateTime.of(2024, 6, 1, 9, 30))
+                .updatedAt(LocalDateTime.of(2024, 6, 1, 10, 0))
+                .build();
+    }
+}
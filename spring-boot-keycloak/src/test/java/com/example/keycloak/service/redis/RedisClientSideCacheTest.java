@@ -0,0 +1,127 @@
+package com.example.keycloak.service.redis;
+
+import io.lettuce.core.KillArgs;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisException;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.sync.RedisCommands;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Client-side cache trên Redis thật: key bị ghi từ connection khác phải bị xóa khỏi cache local,
+ * kể cả sau khi connection tracking bị ngắt và tự kết nối lại
+ * Bỏ qua khi không có Docker
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class RedisClientSideCacheTest {
+
+    private static final String KEY = "config:feature";
+
+    @Container
+    private static final GenericContainer<?> REDIS = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    private RedisClientSideCache cache;
+    private RedisClient otherClient;
+    private StatefulRedisConnection<String, String> other;
+
+    @BeforeEach
+    void setUp() {
+        RedisProperties properties = new RedisProperties();
+        properties.setHost(REDIS.getHost());
+        properties.setPort(REDIS.getMappedPort(6379));
+        properties.setTimeout(Duration.ofSeconds(2));
+        RedisTemplate<String, Object> template = new RedisTemplate<>();
+        template.setValueSerializer(RedisSerializer.string());
+
+        cache = new RedisClientSideCache(properties, template);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "prefixes", List.of("config:"));
+        ReflectionTestUtils.setField(cache, "maximumSize", 100L);
+        cache.init();
+        assertThat(cache.isTracked(KEY)).isTrue();
+
+        otherClient = RedisClient.create("redis://" + REDIS.getHost() + ":" + REDIS.getMappedPort(6379));
+        other = otherClient.connect();
+        other.sync().flushall();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.shutdown();
+        other.close();
+        otherClient.shutdown();
+    }
+
+    @Test
+    void writeFromAnotherConnectionInvalidatesLocalEntry() throws Exception {
+        other.sync().set(KEY, "v1");
+        assertThat(cache.get(KEY)).isEqualTo("v1");
+        assertThat(cache.size()).isEqualTo(1);
+
+        other.sync().set(KEY, "v2");
+
+        await(() -> cache.size() == 0);
+        assertThat(cache.get(KEY)).isEqualTo("v2");
+    }
+
+    @Test
+    void missingKeyIsInvalidatedWhenCreated() throws Exception {
+        assertThat(cache.get(KEY)).isNull();
+        assertThat(cache.size()).isEqualTo(1);
+
+        other.sync().set(KEY, "created");
+
+        await(() -> cache.size() == 0);
+        assertThat(cache.get(KEY)).isEqualTo("created");
+    }
+
+    @Test
+    void trackingIsRestoredAfterReconnect() throws Exception {
+        RedisCommands<String, String> commands = other.sync();
+        commands.set(KEY, "v1");
+        assertThat(cache.get(KEY)).isEqualTo("v1");
+
+        // Ngắt connection tracking (mọi connection thường trừ connection này), Lettuce tự kết nối lại
+        commands.clientKill(KillArgs.Builder.typeNormal().skipme());
+        await(() -> cache.size() == 0);
+
+        // Value chỉ được cache lại khi tracking đã được bật lại trên connection mới
+        await(() -> {
+            try {
+                cache.get(KEY);
+            } catch (RedisException e) {
+                return false;
+            }
+            return cache.size() == 1;
+        });
+
+        commands.set(KEY, "v2");
+
+        await(() -> cache.size() == 0);
+        assertThat(cache.get(KEY)).isEqualTo("v2");
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within 10s").isLessThan(deadline);
+            TimeUnit.MILLISECONDS.sleep(20);
+        }
+    }
+}